@@ -0,0 +1,175 @@
+package utils.codec;
+
+import model.subject.Group;
+import model.subject.Message;
+import model.subject.Question;
+import model.subject.Session;
+import model.subject.Test;
+import model.subject.TestResult;
+import model.user.Notification;
+import model.user.Student;
+import model.user.Teacher;
+import model.user.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Compares the binary codec against Java serialization on synthetic data sets
+ * shaped like the application's data files. Prints on-disk size and
+ * encode/decode throughput for each data set.
+ *
+ * Usage: {@code CodecBenchmark [scale]}, where scale multiplies the data set
+ * sizes (default 1). Build with {@code mvn -Pbench process-classes} and run
+ * with {@code target/classes} and {@code target/bench-classes} on the class
+ * path.
+ */
+public class CodecBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int scale = (args.length > 0) ? Integer.parseInt(args[0]) : 1;
+        Random random = new Random(42);
+        System.out.printf("%-10s %12s %12s %8s %14s %14s %14s %14s%n", "data set", "java bytes", "codec bytes",
+                "ratio", "java enc MB/s", "codec enc MB/s", "java dec MB/s", "codec dec MB/s");
+        run("users", users(2000 * scale, random));
+        run("groups", groups(200 * scale, random));
+        run("tests", tests(20 * scale, random));
+        run("sessions", sessions(20 * scale, random));
+    }
+
+    private static void run(String name, ArrayList<?> data) throws IOException {
+        byte[] javaBytes = javaEncode(data);
+        byte[] codecBytes = EntityCodec.encode(data);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            javaDecode(javaEncode(data));
+            EntityCodec.decode(EntityCodec.encode(data));
+        }
+        long javaEncode = time(() -> javaEncode(data));
+        long codecEncode = time(() -> EntityCodec.encode(data));
+        long javaDecode = time(() -> javaDecode(javaBytes));
+        long codecDecode = time(() -> EntityCodec.decode(codecBytes));
+        System.out.printf("%-10s %12d %12d %7.2fx %14.1f %14.1f %14.1f %14.1f%n", name, javaBytes.length,
+                codecBytes.length, (double) javaBytes.length / codecBytes.length,
+                throughput(javaBytes.length, javaEncode), throughput(javaBytes.length, codecEncode),
+                throughput(javaBytes.length, javaDecode), throughput(javaBytes.length, codecDecode));
+    }
+
+    // Throughput is measured against the Java-serialized size so that both
+    // formats are compared on the same logical payload.
+    private static double throughput(int bytes, long nanosPerRound) {
+        return (bytes / (1024.0 * 1024.0)) / (nanosPerRound / 1e9);
+    }
+
+    private interface Task {
+        Object run() throws IOException;
+    }
+
+    private static long time(Task task) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_ROUNDS;
+    }
+
+    private static byte[] javaEncode(Serializable obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDecode(byte[] bytes) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // -------------------- Synthetic data --------------------
+
+    private static String id() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static ArrayList<User> users(int count, Random random) {
+        ArrayList<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 20 == 0) {
+                users.add(new Teacher(id(), "Teacher " + i, "pass" + i));
+                continue;
+            }
+            Student s = new Student(id(), "Student " + i, "pass" + i, random.nextInt(500));
+            s.enrollGroup("grp" + random.nextInt(50));
+            s.enrollGroup("grp" + random.nextInt(50));
+            for (int n = 0; n < 3; n++) {
+                s.addNotification(new Notification("Session starting soon", "sess" + random.nextInt(20)));
+            }
+            users.add(s);
+        }
+        return users;
+    }
+
+    private static ArrayList<Group> groups(int count, Random random) {
+        ArrayList<Group> groups = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ArrayList<String> teacherIds = new ArrayList<>();
+            teacherIds.add(id());
+            Group g = new Group(id(), "Group " + i, "chap" + random.nextInt(10), teacherIds);
+            for (int s = 0; s < 30; s++) {
+                g.addStudent(id());
+            }
+            groups.add(g);
+        }
+        return groups;
+    }
+
+    private static ArrayList<Test> tests(int count, Random random) {
+        ArrayList<Test> tests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Test t = new Test(id(), "chap" + random.nextInt(10), "Test " + i, "2025-03-01 09:00", 90);
+            for (int q = 0; q < 20; q++) {
+                t.addQuestion(new Question(id(), t.getId(), "Question " + q + " of test " + i,
+                        new String[] { "Option A", "Option B", "Option C", "Option D" }, random.nextInt(4)));
+            }
+            for (int r = 0; r < 300; r++) {
+                Map<String, Integer> answers = new HashMap<>();
+                for (Question q : t.getQuestions()) {
+                    answers.put(q.getId(), random.nextInt(4));
+                }
+                t.addTestResult(new TestResult(t.getId(), id(), answers, random.nextDouble() * 100,
+                        "2025-03-01T10:" + (r % 60)));
+            }
+            tests.add(t);
+        }
+        return tests;
+    }
+
+    private static ArrayList<Session> sessions(int count, Random random) {
+        ArrayList<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Session s = new Session(id(), "Session " + i, "2025-02-20 10:00", "chap" + random.nextInt(10),
+                    "grp" + random.nextInt(50));
+            String teacherId = id();
+            s.addTeacher(teacherId);
+            for (int m = 0; m < 500; m++) {
+                s.addMessage(new Message(teacherId, "Teacher", "Message number " + m + " in the session"));
+            }
+            sessions.add(s);
+        }
+        return sessions;
+    }
+}
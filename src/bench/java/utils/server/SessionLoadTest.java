@@ -0,0 +1,131 @@
+package utils.server;
+
+import model.subject.Message;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback load test for {@link SessionServer}: starts a server on a free
+ * port, connects the given number of participants spread over several
+ * sessions, has every participant send some chat messages and waits until
+ * every participant has received every message of its session.
+ *
+ * Usage: {@code java utils.server.SessionLoadTest [participants] [sessions]
+ * [messagesPerParticipant]} (defaults 2000, 40, 5). Messages are not written
+ * to the chat journals during the test. Build with
+ * {@code mvn -Pbench process-classes} and run with {@code target/classes} and
+ * {@code target/bench-classes} on the class path.
+ */
+public class SessionLoadTest {
+    public static void main(String[] args) throws Exception {
+        int participants = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 40;
+        int messagesPerParticipant = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        SessionServer server = new SessionServer(0, false);
+        server.start();
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        ExecutorService readers = ConnectionExecutors.newPerConnectionExecutor("load-client");
+
+        // Each participant expects every message sent in its session.
+        int[] sessionSizes = new int[sessions];
+        for (int i = 0; i < participants; i++) {
+            sessionSizes[i % sessions]++;
+        }
+        CountDownLatch joined = new CountDownLatch(participants);
+        CountDownLatch received = new CountDownLatch(participants);
+        AtomicLong deliveries = new AtomicLong();
+        List<SessionClient> clients = new ArrayList<>(participants);
+
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < participants; i++) {
+            String sessionId = "load-session-" + (i % sessions);
+            String userId = "participant-" + i;
+            long expected = (long) sessionSizes[i % sessions] * messagesPerParticipant;
+            clients.add(SessionClient.connect(host, server.getPort(),
+                    new CountingListener(userId, expected, joined, received, deliveries), readers));
+            clients.get(i).join(sessionId, userId, "Participant " + i);
+        }
+        if (!joined.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Timed out waiting for participants to join");
+        }
+        long connectMillis = (System.nanoTime() - connectStart) / 1_000_000;
+
+        long sendStart = System.nanoTime();
+        for (int m = 0; m < messagesPerParticipant; m++) {
+            for (int i = 0; i < participants; i++) {
+                clients.get(i).sendMessage("load-session-" + (i % sessions), "participant-" + i,
+                        "Participant " + i, "message " + m);
+            }
+        }
+        boolean complete = received.await(120, TimeUnit.SECONDS);
+        long sendMillis = Math.max(1, (System.nanoTime() - sendStart) / 1_000_000);
+
+        System.out.println("Participants:        " + participants + " in " + sessions + " sessions");
+        System.out.println("Server connections:  " + server.getConnectionCount());
+        System.out.println("Connect and join:    " + connectMillis + " ms");
+        System.out.println("Messages sent:       " + (long) participants * messagesPerParticipant);
+        System.out.println("Deliveries:          " + deliveries.get() + " in " + sendMillis + " ms ("
+                + (deliveries.get() * 1000 / sendMillis) + "/s)");
+        System.out.println(complete ? "Every participant received every message."
+                : "INCOMPLETE: " + received.getCount() + " participants still waiting.");
+
+        for (SessionClient client : clients) {
+            client.close();
+        }
+        server.stop();
+        readers.shutdownNow();
+        System.exit(complete ? 0 : 1);
+    }
+
+    private static class CountingListener implements SessionClient.Listener {
+        private final String userId;
+        private final long expected;
+        private final CountDownLatch joined;
+        private final CountDownLatch received;
+        private final AtomicLong deliveries;
+        private long count;
+
+        CountingListener(String userId, long expected, CountDownLatch joined, CountDownLatch received,
+                AtomicLong deliveries) {
+            this.userId = userId;
+            this.expected = expected;
+            this.joined = joined;
+            this.received = received;
+            this.deliveries = deliveries;
+        }
+
+        @Override
+        public void participantJoined(String sessionId, String joinedUserId, String userName) {
+            if (joinedUserId.equals(userId)) {
+                joined.countDown();
+            }
+        }
+
+        @Override
+        public void participantLeft(String sessionId, String leftUserId) {
+        }
+
+        @Override
+        public void participantRemoved(String sessionId, String removedUserId) {
+        }
+
+        @Override
+        public void messageReceived(String sessionId, Message message, long journalOffset) {
+            deliveries.incrementAndGet();
+            if (++count == expected) {
+                received.countDown();
+            }
+        }
+
+        @Override
+        public void disconnected() {
+        }
+    }
+}
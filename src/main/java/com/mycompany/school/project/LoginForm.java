@@ -5,6 +5,7 @@ import model.user.Student;
 import model.user.Teacher;
 import model.user.User;
 import model.user.UserStorage;
+import utils.server.SessionServer;
 
 public class LoginForm extends javax.swing.JFrame {
 
@@ -133,6 +134,9 @@ public class LoginForm extends javax.swing.JFrame {
         }
         // </editor-fold>
 
+        // Live sessions are relayed by the first instance started on this machine.
+        SessionServer.startEmbedded();
+
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(new Runnable() {
             public void run() {
@@ -1,7 +1,6 @@
 package com.mycompany.school.project;
 
 import javax.swing.*;
-import java.util.List;
 import model.user.User;
 import model.user.UserFactory;
 import model.user.UserStorage;
@@ -107,10 +106,7 @@ public class RegisterForm extends javax.swing.JFrame {
         }
 
         // Check if username already exists
-        List<User> existingUsers = UserStorage.getUsers();
-        boolean userExists = existingUsers.stream()
-                .anyMatch(user -> user.getName().equalsIgnoreCase(name));
-        if (userExists) {
+        if (UserStorage.isNameTaken(name)) {
             JOptionPane.showMessageDialog(this, "Username already exists. Choose a different name.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -6,10 +6,11 @@ import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableCellEditor;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import model.subject.*;
@@ -17,11 +18,22 @@ import model.user.Teacher;
 import model.user.Student;
 import model.user.User;
 import model.user.UserStorage;
+import utils.AsyncDataAccess;
+import utils.EntityCache;
 import utils.IDGenerator;
 import utils.SerializationUtil;
 import utils.decorator.OrderedMultipleChoiceDecorator;
 import utils.interpreter.BasicGradingRuleExpression;
 import utils.interpreter.GradingRuleExpression;
+import utils.interpreter.ScoreTable;
+import utils.log.ChatJournal;
+import utils.log.SubmissionLog;
+import utils.server.SessionClient;
+import utils.tx.Transaction;
+import utils.tx.TransactionManager;
+import utils.tx.VersionedStore;
+import utils.observer.FileChangeWatcher;
+import utils.observer.RefreshScheduler;
 
 public class StudentDashboard extends JFrame {
     private Student student;
@@ -30,6 +42,8 @@ public class StudentDashboard extends JFrame {
     private ArrayList<Subject> subjects;
     private ArrayList<Chapter> chapters;
     private ArrayList<Group> groups;
+    private GroupRoster groupRoster;
+    private final ChapterIndex chapterIndex = new ChapterIndex();
     private ArrayList<Material> materials;
     private ArrayList<Test> tests;
     private ArrayList<Session> sessions;
@@ -77,7 +91,7 @@ public class StudentDashboard extends JFrame {
     private DefaultTableModel sessionsTableModel;
     private JButton refreshSessionsButton, joinSessionButton;
 
-    private Timer notificationRefreshTimer; // used only in student sessions refresh
+    private RefreshScheduler.Handle sessionsRefresh;
 
     public StudentDashboard(Student student) {
         this.student = student;
@@ -98,6 +112,7 @@ public class StudentDashboard extends JFrame {
         if (groups == null) {
             groups = new ArrayList<>();
         }
+        groupRoster = new GroupRoster(groups);
         materials = SerializationUtil.readFromFile("materials.txt");
         if (materials == null) {
             materials = new ArrayList<>();
@@ -110,6 +125,11 @@ public class StudentDashboard extends JFrame {
         if (sessions == null) {
             sessions = new ArrayList<>();
         }
+        chapterIndex.setChapters(chapters);
+        chapterIndex.setGroups(groups);
+        chapterIndex.setMaterials(materials);
+        chapterIndex.setTests(tests);
+        chapterIndex.setSessions(sessions);
         List<User> allUsers = UserStorage.getUsers();
         teachers = allUsers.stream()
                 .filter(u -> u instanceof Teacher)
@@ -121,7 +141,8 @@ public class StudentDashboard extends JFrame {
         if (updatedStudent != null) {
             student = updatedStudent;
         }
-        testResults = (ArrayList<TestResult>) student.getTestResults();
+        // A copy: the student may be shared with other readers of users.txt.
+        testResults = new ArrayList<>(student.getTestResults());
     }
 
     private void initComponents() {
@@ -176,16 +197,12 @@ public class StudentDashboard extends JFrame {
         materialsTableModel.setRowCount(0);
         // Show only materials for chapters associated with groups the student is
         // enrolled in.
-        ArrayList<Group> studentGroups = groups.stream()
-                .filter(g -> g.getStudentIds().contains(student.getId()))
-                .collect(Collectors.toCollection(ArrayList::new));
-        ArrayList<String> chapterIds = studentGroups.stream()
+        List<Group> studentGroups = groupRoster.groupsOfStudent(student.getId());
+        List<String> chapterIds = studentGroups.stream()
                 .map(Group::getChapterId)
                 .distinct()
-                .collect(Collectors.toCollection(ArrayList::new));
-        ArrayList<Material> relevantMaterials = materials.stream()
-                .filter(m -> chapterIds.contains(m.getChapterId()))
-                .collect(Collectors.toCollection(ArrayList::new));
+                .collect(Collectors.toList());
+        List<Material> relevantMaterials = chapterIndex.materialsOfChapters(chapterIds);
         for (Material m : relevantMaterials) {
             String chapterName = getChapterNameById(m.getChapterId());
             materialsTableModel
@@ -230,6 +247,7 @@ public class StudentDashboard extends JFrame {
         if (tests == null) {
             tests = new ArrayList<>();
         }
+        chapterIndex.setTests(tests);
         ArrayList<Test> availableTests = new ArrayList<>();
         for (Test t : tests) {
             boolean alreadyTaken = testResults.stream().anyMatch(tr -> tr.getTestId().equals(t.getId()));
@@ -332,14 +350,35 @@ public class StudentDashboard extends JFrame {
             JOptionPane.showMessageDialog(this, "Selected group not found.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        selectedGroup.addStudent(student.getId());
-        student.enrollGroup(groupId);
-        SerializationUtil.saveDataToDisk(groups, "groups.txt");
-        SerializationUtil.saveDataToDisk(UserStorage.getUsers(), "users.txt");
-        populateAllGroupsTable();
-        populateMyGroupsTable();
-        JOptionPane.showMessageDialog(this, "Successfully enrolled in the group.", "Enrollment Successful",
-                JOptionPane.INFORMATION_MESSAGE);
+        // The group and the student are saved together or not at all, each
+        // changed as currently stored so that concurrent changes are kept.
+        String studentId = student.getId();
+        AsyncDataAccess.supplyToEdt(() -> TransactionManager.getInstance().begin()
+                .update("groups.txt", groupId, (Group g) -> {
+                    if (g.hasStudent(studentId)) {
+                        return false;
+                    }
+                    g.addStudent(studentId);
+                    return true;
+                })
+                .update("users.txt", studentId, (Student s) -> {
+                    if (s.getGroupIds().contains(groupId)) {
+                        return false;
+                    }
+                    s.enrollGroup(groupId);
+                    return true;
+                })
+                .commit(), committed -> {
+                    reloadGroups();
+                    if (!committed) {
+                        JOptionPane.showMessageDialog(this, "Could not save the enrollment. Please try again.",
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    student.enrollGroup(groupId);
+                    JOptionPane.showMessageDialog(this, "Successfully enrolled in the group.",
+                            "Enrollment Successful", JOptionPane.INFORMATION_MESSAGE);
+                });
     }
 
     private void leaveSelectedGroup() {
@@ -366,15 +405,47 @@ public class StudentDashboard extends JFrame {
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to leave Group ID: " + groupId + "?",
                 "Confirm Leave", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            selectedGroup.removeStudent(student.getId());
-            student.leaveGroup(groupId);
-            SerializationUtil.saveDataToDisk(groups, "groups.txt");
-            SerializationUtil.saveDataToDisk(UserStorage.getUsers(), "users.txt");
+            String studentId = student.getId();
+            AsyncDataAccess.supplyToEdt(() -> TransactionManager.getInstance().begin()
+                    .update("groups.txt", groupId, (Group g) -> {
+                        if (!g.hasStudent(studentId)) {
+                            return false;
+                        }
+                        g.removeStudent(studentId);
+                        return true;
+                    })
+                    .update("users.txt", studentId, (Student s) -> {
+                        if (!s.getGroupIds().contains(groupId)) {
+                            return false;
+                        }
+                        s.leaveGroup(groupId);
+                        return true;
+                    })
+                    .commit(), committed -> {
+                        reloadGroups();
+                        if (!committed) {
+                            JOptionPane.showMessageDialog(this, "Could not save the change. Please try again.",
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        student.leaveGroup(groupId);
+                        JOptionPane.showMessageDialog(this, "You have left the group successfully.", "Left Group",
+                                JOptionPane.INFORMATION_MESSAGE);
+                    });
+        }
+    }
+
+    // Shows the groups as currently stored, including other clients' changes.
+    private void reloadGroups() {
+        AsyncDataAccess.supplyToEdt(() -> SerializationUtil.<ArrayList<Group>>readFromFile("groups.txt"), loaded -> {
+            if (loaded != null) {
+                groups = loaded;
+                groupRoster = new GroupRoster(groups);
+                chapterIndex.setGroups(groups);
+            }
             populateAllGroupsTable();
             populateMyGroupsTable();
-            JOptionPane.showMessageDialog(this, "You have left the group successfully.", "Left Group",
-                    JOptionPane.INFORMATION_MESSAGE);
-        }
+        });
     }
 
     private void initMyGroupsTab() {
@@ -397,9 +468,7 @@ public class StudentDashboard extends JFrame {
 
     private void populateMyGroupsTable() {
         myGroupsTableModel.setRowCount(0);
-        ArrayList<Group> myGroups = groups.stream()
-                .filter(g -> g.getStudentIds().contains(student.getId()))
-                .collect(Collectors.toCollection(ArrayList::new));
+        List<Group> myGroups = groupRoster.groupsOfStudent(student.getId());
         for (Group g : myGroups) {
             String chapterName = getChapterNameById(g.getChapterId());
             String teachersNames = g.getTeacherIds().stream()
@@ -460,24 +529,36 @@ public class StudentDashboard extends JFrame {
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
-        double newBalance = student.getBalance() - paymentAmount;
-        student.setBalance(newBalance);
-        currentBalanceLabel.setText(String.format("$%.2f", newBalance));
-        updateUserBalanceInStorage();
-        JOptionPane.showMessageDialog(this, "Payment successful. New balance: $" + String.format("%.2f", newBalance),
-                "Payment Successful", JOptionPane.INFORMATION_MESSAGE);
-        paymentAmountField.setText("");
-    }
-
-    private void updateUserBalanceInStorage() {
-        ArrayList<User> allUsers = UserStorage.getUsers();
-        for (User u : allUsers) {
-            if (u instanceof Student && u.getId().equals(student.getId())) {
-                ((Student) u).setBalance(student.getBalance());
-                break;
+        // Deducted from the balance as stored, keeping concurrent changes to
+        // the student.
+        String studentId = student.getId();
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("users.txt", studentId, (User u) -> {
+            Student s = (Student) u;
+            if (paymentAmount > s.getBalance()) {
+                return false;
             }
-        }
-        UserStorage.updateUsers(allUsers);
+            s.setBalance(s.getBalance() - paymentAmount);
+            return true;
+        }), result -> {
+            if (result.getOutcome() != VersionedStore.Outcome.UPDATED) {
+                JOptionPane.showMessageDialog(this, "Could not process the payment. Please try again.",
+                        "Payment Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            double newBalance = student.getBalance() - paymentAmount;
+            for (User u : result.getEntities()) {
+                if (u.getId().equals(studentId)) {
+                    newBalance = ((Student) u).getBalance();
+                    break;
+                }
+            }
+            student.setBalance(newBalance);
+            currentBalanceLabel.setText(String.format("$%.2f", newBalance));
+            JOptionPane.showMessageDialog(this,
+                    "Payment successful. New balance: $" + String.format("%.2f", newBalance),
+                    "Payment Successful", JOptionPane.INFORMATION_MESSAGE);
+            paymentAmountField.setText("");
+        });
     }
 
     private void initViewTestResultsTab() {
@@ -523,27 +604,38 @@ public class StudentDashboard extends JFrame {
         topPanel.add(refreshSessionsButton);
         topPanel.add(joinSessionButton);
         sessionsPanel.add(topPanel, BorderLayout.NORTH);
-        refreshSessionsButton.addActionListener(e -> populateSessionsTable());
+        refreshSessionsButton.addActionListener(e -> sessionsRefresh.refreshNow());
         joinSessionButton.addActionListener(e -> joinSelectedSession());
-        new Timer().schedule(new TimerTask() {
-            public void run() {
-                SwingUtilities.invokeLater(() -> populateSessionsTable());
+        populateSessionsTable();
+        // Poll sessions.txt every 5 seconds, backing off to a minute while it is
+        // unchanged; the task stops when this window is closed.
+        File sessionsFile = new File("sessions.txt");
+        EntityCache.Stamp[] loadedStamp = { EntityCache.stampOf(sessionsFile) };
+        sessionsRefresh = RefreshScheduler.getDefault().scheduleWhileOpen(this, () -> {
+            EntityCache.Stamp stamp = EntityCache.stampOf(sessionsFile);
+            if (Objects.equals(stamp, loadedStamp[0])) {
+                return false;
             }
-        }, 0, 5000);
+            loadedStamp[0] = stamp;
+            ArrayList<Session> loaded = SerializationUtil.readFromFile("sessions.txt");
+            SwingUtilities.invokeLater(() -> {
+                sessions = (loaded != null) ? loaded : new ArrayList<>();
+                chapterIndex.setSessions(sessions);
+                populateSessionsTable();
+            });
+            return true;
+        }, 5000, 60000);
     }
 
     private void populateSessionsTable() {
         sessionsTableModel.setRowCount(0);
-        List<String> studentGroupIds = student.getGroupIds();
-        for (Session s : sessions) {
-            if (studentGroupIds.contains(s.getGroupId())) {
-                String groupName = getGroupNameById(s.getGroupId());
-                int teacherCount = (s.getTeacherIds() != null) ? s.getTeacherIds().size() : 0;
-                int studentCount = (s.getStudentIds() != null) ? s.getStudentIds().size() : 0;
-                String participants = "Teachers: " + teacherCount + ", Students: " + studentCount;
-                sessionsTableModel
-                        .addRow(new Object[] { s.getId(), s.getTitle(), s.getDateTime(), groupName, participants });
-            }
+        for (Session s : chapterIndex.sessionsOfGroups(student.getGroupIds())) {
+            String groupName = getGroupNameById(s.getGroupId());
+            int teacherCount = (s.getTeacherIds() != null) ? s.getTeacherIds().size() : 0;
+            int studentCount = (s.getStudentIds() != null) ? s.getStudentIds().size() : 0;
+            String participants = "Teachers: " + teacherCount + ", Students: " + studentCount;
+            sessionsTableModel
+                    .addRow(new Object[] { s.getId(), s.getTitle(), s.getDateTime(), groupName, participants });
         }
     }
 
@@ -562,41 +654,126 @@ public class StudentDashboard extends JFrame {
             JOptionPane.showMessageDialog(this, "Selected session not found.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        if (!session.getStudentIds().contains(student.getId())) {
-            session.addStudent(student.getId());
-            SerializationUtil.saveDataToDisk(sessions, "sessions.txt");
+        if (session.getStudentIds().contains(student.getId())) {
+            openSessionRoom(session);
+            return;
         }
-        openSessionRoom(session);
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("sessions.txt", sessionId, (Session s) -> {
+            if (s.getStudentIds().contains(student.getId())) {
+                return false;
+            }
+            s.addStudent(student.getId());
+            return true;
+        }), result -> {
+            if (result.getEntities() != null) {
+                sessions = result.getEntities();
+                chapterIndex.setSessions(sessions);
+                populateSessionsTable();
+            }
+            switch (result.getOutcome()) {
+                case UPDATED:
+                case UNCHANGED:
+                    sessions.stream().filter(s -> s.getId().equals(sessionId)).findFirst()
+                            .ifPresent(this::openSessionRoom);
+                    break;
+                case NOT_FOUND:
+                    JOptionPane.showMessageDialog(this, "The session has ended.", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Could not join the session. Please try again.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     private void openSessionRoom(Session session) {
-        final Session[] currentSession = new Session[] { session };
-        JDialog sessionDialog = new JDialog(this, "Session: " + currentSession[0].getTitle(), true);
+        JDialog sessionDialog = new JDialog(this, "Session: " + session.getTitle(), true);
         sessionDialog.setSize(800, 600);
         sessionDialog.setLayout(new BorderLayout());
         JTextArea chatArea = new JTextArea();
         chatArea.setEditable(false);
         JScrollPane chatScroll = new JScrollPane(chatArea);
         sessionDialog.add(chatScroll, BorderLayout.CENTER);
-        new Timer().schedule(new TimerTask() {
-            public void run() {
+        ChatJournal chatJournal = new ChatJournal(session.getId());
+        Consumer<List<Message>> showMessages = messages -> messages
+                .forEach(msg -> chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n"));
+        // Without a server, follow the journal file, reading it off the EDT.
+        FileChangeWatcher.Subscription[] subscription = new FileChangeWatcher.Subscription[1];
+        Runnable followJournal = () -> subscription[0] = FileChangeWatcher.subscribe(chatJournal.getPath(),
+                filePath -> AsyncDataAccess.supplyToEdt(chatJournal::readNew, showMessages));
+        // Join the session server first, if one is running; its events are
+        // handled on the EDT once the dialog is showing, after the history below.
+        long[] historyOffset = new long[1];
+        SessionClient client = SessionClient.connectIfAvailable(new SessionClient.Listener() {
+            @Override
+            public void participantJoined(String sessionId, String userId, String userName) {
+            }
+
+            @Override
+            public void participantLeft(String sessionId, String userId) {
+            }
+
+            @Override
+            public void participantRemoved(String sessionId, String userId) {
+                if (userId.equals(student.getId())) {
+                    SwingUtilities.invokeLater(() -> {
+                        JOptionPane.showMessageDialog(sessionDialog,
+                                "You have been removed from this session by the teacher.", "Session Ended",
+                                JOptionPane.INFORMATION_MESSAGE);
+                        sessionDialog.dispose();
+                    });
+                }
+            }
+
+            @Override
+            public void messageReceived(String sessionId, Message message, long journalOffset) {
                 SwingUtilities.invokeLater(() -> {
-                    ArrayList<Session> sessionsList = SerializationUtil.readFromFile("sessions.txt");
-                    if (sessionsList != null) {
-                        for (Session s : sessionsList) {
-                            if (s.getId().equals(currentSession[0].getId())) {
-                                currentSession[0] = s;
-                                break;
-                            }
-                        }
+                    if (journalOffset < 0 || journalOffset >= historyOffset[0]) {
+                        chatArea.append(message.getSenderName() + ": " + message.getContent() + "\n");
                     }
-                    chatArea.setText("");
-                    currentSession[0].getMessages()
-                            .forEach(msg -> chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n"));
                 });
             }
-        }, 0, 3000);
+
+            @Override
+            public void disconnected() {
+                // The server went away, e.g. the instance hosting it exited:
+                // follow the journal, which also holds the relayed messages,
+                // and show the chat from its start.
+                SwingUtilities.invokeLater(() -> {
+                    if (!sessionDialog.isVisible() || subscription[0] != null) {
+                        return;
+                    }
+                    followJournal.run();
+                    chatJournal.restart();
+                    AsyncDataAccess.supplyToEdt(chatJournal::readNew, messages -> {
+                        chatArea.setText("");
+                        session.getMessages().forEach(
+                                msg -> chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n"));
+                        showMessages.accept(messages);
+                    });
+                });
+            }
+        });
+        if (client != null) {
+            client.join(session.getId(), student.getId(), student.getName());
+        }
+        // Show the messages stored on the session, then those in its chat journal.
+        session.getMessages()
+                .forEach(msg -> chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n"));
+        showMessages.accept(chatJournal.readNew());
+        historyOffset[0] = chatJournal.getOffset();
+        if (client == null) {
+            followJournal.run();
+        }
         sessionDialog.setVisible(true);
+        // The dialog is modal, so it has been closed by the time we get here.
+        if (subscription[0] != null) {
+            subscription[0].cancel();
+        }
+        if (client != null) {
+            client.leave(session.getId(), student.getId());
+            client.close();
+        }
     }
 
     // -------------------- Test Taking Dialog (Inner Class) --------------------
@@ -702,55 +879,57 @@ public class StudentDashboard extends JFrame {
                     return;
                 }
             }
-            double score = 0.0;
             GradingRuleExpression basicRule = new BasicGradingRuleExpression();
             GradingRuleExpression ruleWithDecorator = new OrderedMultipleChoiceDecorator(basicRule);
-            for (Question q : questions) {
-                if (answers.containsKey(q.getId())) {
-                    int selected = answers.get(q.getId());
-                    score += ruleWithDecorator.evaluate(q, selected);
-                }
-            }
+            double score = ScoreTable.compile(ruleWithDecorator, test).totalScore(answers);
             score = (score / questions.size()) * 100.0;
             String submissionTime = java.time.LocalDateTime.now().toString();
             TestResult tr = new TestResult(test.getId(), student.getId(), answers, score, submissionTime);
-            test.addTestResult(tr);
-            student.addTestResult(tr);
-            saveTestResult(tr);
-            SerializationUtil.saveDataToDisk(tests, "tests.txt");
-            JOptionPane.showMessageDialog(this,
-                    "Test submitted successfully!\nYour Score: " + String.format("%.2f", score) + "%",
-                    "Test Submitted", JOptionPane.INFORMATION_MESSAGE);
-            dispose();
-        }
-
-        private void saveTestResult(TestResult tr) {
-            ArrayList<TestResult> allTestResults = SerializationUtil.readFromFile("testResults.txt");
-            if (allTestResults == null) {
-                allTestResults = new ArrayList<>();
-            }
-            allTestResults.add(tr);
-            SerializationUtil.saveDataToDisk(allTestResults, "testResults.txt");
+            tr.packAnswers(test.getQuestionDictionary());
+            // The submission log and the test are updated together. The result
+            // is added to the test as stored at commit time, so results
+            // submitted meanwhile by others are kept. The commit runs off the
+            // EDT, with the dialog disabled so that the test is not submitted
+            // twice.
+            Transaction tx = TransactionManager.getInstance().begin();
+            boolean encoded = SubmissionLog.append(tx, tr);
+            tx.update("tests.txt", test.getId(), (Test t) -> {
+                t.addTestResult(tr);
+                return true;
+            });
+            double finalScore = score;
+            setEnabled(false);
+            AsyncDataAccess.supplyToEdt(() -> {
+                if (!encoded || !tx.commit()) {
+                    return false;
+                }
+                SubmissionLog.compactIfNeeded();
+                return true;
+            }, committed -> {
+                if (!committed) {
+                    setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Could not save your submission. Please try again.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                testResults.add(tr);
+                JOptionPane.showMessageDialog(this,
+                        "Test submitted successfully!\nYour Score: " + String.format("%.2f", finalScore) + "%",
+                        "Test Submitted", JOptionPane.INFORMATION_MESSAGE);
+                dispose();
+            });
         }
     }
 
     // Utility methods to look up chapter, group, and teacher names.
     private String getChapterNameById(String chapterId) {
-        for (Chapter c : chapters) {
-            if (c.getId().equals(chapterId)) {
-                return c.getName();
-            }
-        }
-        return "Unknown";
+        Chapter c = chapterIndex.getChapter(chapterId);
+        return (c != null) ? c.getName() : "Unknown";
     }
 
     private String getGroupNameById(String groupId) {
-        for (Group g : groups) {
-            if (g.getId().equals(groupId)) {
-                return g.getGroupName();
-            }
-        }
-        return "Unknown";
+        Group g = chapterIndex.getGroup(groupId);
+        return (g != null) ? g.getGroupName() : "Unknown";
     }
 
     private String getTeacherNameById(String teacherId) {
@@ -768,7 +947,6 @@ public class StudentDashboard extends JFrame {
         boolean exists = allUsers.stream().anyMatch(u -> u.getId().equals(sampleStudent.getId()));
         if (!exists) {
             UserStorage.addUser(sampleStudent);
-            SerializationUtil.saveDataToDisk(UserStorage.getUsers(), "users.txt");
         }
         new StudentDashboard(sampleStudent);
     }
@@ -7,23 +7,38 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TimerTask;
+import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.Timer;
 
 import model.subject.*;
 import model.user.Teacher;
 import model.user.Student;
 import model.user.User;
 import model.user.UserStorage;
+import utils.AsyncDataAccess;
 import utils.IDGenerator;
 import utils.SerializationUtil;
+import utils.log.ChatJournal;
+import utils.log.GradeAggregate;
+import utils.log.Gradebook;
+import utils.log.SubmissionLog;
 import utils.memento.TestCaretaker;
 import utils.memento.TestMemento;
 import utils.memento.TestOriginator;
+import utils.template.ParallelExamProcessor;
 import utils.template.StandardExamProcessor;
+import utils.observer.FileChangeWatcher;
 import utils.observer.SessionObserver;
+import utils.strategy.GradeIndex;
+import utils.strategy.GradeLevel;
+import utils.strategy.GradeOrganizationStrategy;
+import utils.strategy.GradeTree;
+import utils.strategy.ParallelGradeOrganizationStrategy;
+import utils.strategy.StudentGradeOrganizationStrategy;
+import utils.strategy.SubjectGradeOrganizationStrategy;
+import utils.tx.VersionedStore;
 
 public class TeacherDashboard extends JFrame implements SessionObserver {
     private Teacher teacher;
@@ -32,6 +47,8 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
     private List<Subject> subjects;
     private List<Chapter> chapters;
     private ArrayList<Group> groups;
+    private GroupRoster groupRoster;
+    private final ChapterIndex chapterIndex = new ChapterIndex();
     private ArrayList<Material> materials;
     private ArrayList<Test> tests;
     private ArrayList<Session> sessions;
@@ -79,9 +96,15 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
     private JPanel viewTestResultsPanel;
     private JTable testResultsTable;
     private DefaultTableModel testResultsTableModel;
+    private JLabel testResultsSummaryLabel;
     private JComboBox<Test> testSelectionComboBox;
     private JButton viewTestResultsButton;
 
+    // Grade Overview Tab
+    private JPanel gradeOverviewPanel;
+    private JComboBox<String> gradeGroupingComboBox;
+    private DefaultTableModel gradeOverviewTableModel;
+
     // Sessions Tab
     private JPanel sessionsPanel;
     private JTable sessionsTable;
@@ -91,6 +114,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
     private JButton endSessionButton;
     private JTextField sessionMessageField;
     private JTextArea sessionChatArea;
+    private FileChangeWatcher.Subscription sessionsSubscription;
 
     // Process Exam Tab
     private JPanel processExamPanel;
@@ -117,6 +141,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
     private JButton saveTestChangesButton;
     private JButton undoButton;
     private JButton redoButton;
+    private JLabel undoHistoryLabel;
 
     // Memento fields for test editing
     private TestOriginator testOriginator;
@@ -150,6 +175,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
             groups = loadedGroups;
             System.out.println("Loaded " + groups.size() + " groups.");
         }
+        groupRoster = new GroupRoster(groups);
         materials = SerializationUtil.readFromFile("materials.txt");
         if (materials == null) {
             materials = new ArrayList<>();
@@ -167,6 +193,11 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
             sessions = new ArrayList<>();
             System.out.println("No existing sessions found.");
         }
+        chapterIndex.setChapters(chapters);
+        chapterIndex.setGroups(groups);
+        chapterIndex.setMaterials(materials);
+        chapterIndex.setTests(tests);
+        chapterIndex.setSessions(sessions);
         List<User> allUsers = UserStorage.getUsers();
         teachers = allUsers.stream()
                 .filter(u -> u instanceof Teacher)
@@ -176,19 +207,14 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
                 .filter(u -> u instanceof Student)
                 .map(u -> (Student) u)
                 .collect(Collectors.toList());
-        allTestResults = SerializationUtil.readFromFile("testResults.txt");
-        if (allTestResults == null) {
-            allTestResults = new ArrayList<>();
+        allTestResults = SubmissionLog.readAll();
+        if (allTestResults.isEmpty()) {
             System.out.println("No existing test results found.");
         }
-        teacherChapters = groups.stream()
-                .filter(g -> g.getTeacherIds() != null && g.getTeacherIds().contains(teacher.getId()))
+        teacherChapters = groupRoster.groupsOfTeacher(teacher.getId()).stream()
                 .map(Group::getChapterId)
                 .distinct()
-                .map(chapterId -> chapters.stream()
-                        .filter(c -> c.getId().equals(chapterId))
-                        .findFirst()
-                        .orElse(null))
+                .map(chapterIndex::getChapter)
                 .filter(c -> c != null)
                 .collect(Collectors.toList());
         System.out.println("Chapters assigned to Teacher (" + teacher.getName() + "): " +
@@ -207,6 +233,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         initCreateTestTab();
         initCreateSessionTab();
         initViewTestResultsTab();
+        initGradeOverviewTab();
         initSessionsTab();
         initProcessExamTab();
         initNotificationsTab();
@@ -218,6 +245,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         tabbedPane.addTab("Create Test", createTestPanel);
         tabbedPane.addTab("Create Session", createSessionPanel);
         tabbedPane.addTab("View Test Results", viewTestResultsPanel);
+        tabbedPane.addTab("Grade Overview", gradeOverviewPanel);
         tabbedPane.addTab("Sessions", sessionsPanel);
         tabbedPane.addTab("Process Exam", processExamPanel);
         tabbedPane.addTab("Notifications", notificationsPanel);
@@ -232,6 +260,8 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
                 Component selected = source.getSelectedComponent();
                 if (selected == viewTestResultsPanel) {
                     updateTestSelectionComboBox();
+                } else if (selected == gradeOverviewPanel) {
+                    populateGradeOverviewTable();
                 }
             }
         });
@@ -317,11 +347,14 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete Group ID: " + groupId + "?",
                 "Confirm Deletion", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            groups.removeIf(g -> g.getId().equals(groupId));
-            SerializationUtil.saveDataToDisk(groups, "groups.txt");
-            populateGroupsTable();
-            JOptionPane.showMessageDialog(this, "Group deleted successfully.", "Deletion Successful",
-                    JOptionPane.INFORMATION_MESSAGE);
+            // Deleted from the groups as stored, keeping other teachers'
+            // concurrent changes to the rest.
+            AsyncDataAccess.supplyToEdt(() -> VersionedStore.<Group>delete("groups.txt", groupId), result -> {
+                if (applyGroupUpdate(result)) {
+                    JOptionPane.showMessageDialog(this, "Group deleted successfully.", "Deletion Successful",
+                            JOptionPane.INFORMATION_MESSAGE);
+                }
+            });
         }
     }
 
@@ -343,12 +376,20 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
                     JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        selectedGroup.addTeacher(teacher.getId());
-        SerializationUtil.saveDataToDisk(groups, "groups.txt");
-        populateGroupsTable();
-        populateMyGroupsTable();
-        JOptionPane.showMessageDialog(this, "You have been assigned to the selected group.", "Assignment Successful",
-                JOptionPane.INFORMATION_MESSAGE);
+        // Applied to the latest stored group, so a concurrent change by another
+        // teacher is kept rather than overwritten.
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("groups.txt", groupId, (Group g) -> {
+            if (g.getTeacherIds().contains(teacher.getId())) {
+                return false;
+            }
+            g.addTeacher(teacher.getId());
+            return true;
+        }), result -> {
+            if (applyGroupUpdate(result)) {
+                JOptionPane.showMessageDialog(this, "You have been assigned to the selected group.",
+                        "Assignment Successful", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
     }
 
     private void removeTeacherFromGroup() {
@@ -372,12 +413,55 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         int confirm = JOptionPane.showConfirmDialog(this, "Remove yourself from Group ID: " + groupId + "?",
                 "Confirm Removal", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            selectedGroup.removeTeacher(teacher.getId());
-            SerializationUtil.saveDataToDisk(groups, "groups.txt");
+            AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("groups.txt", groupId, (Group g) -> {
+                if (!g.getTeacherIds().contains(teacher.getId())) {
+                    return false;
+                }
+                g.removeTeacher(teacher.getId());
+                return true;
+            }), result -> {
+                if (applyGroupUpdate(result)) {
+                    JOptionPane.showMessageDialog(this, "You have been removed from the group.",
+                            "Removal Successful", JOptionPane.INFORMATION_MESSAGE);
+                }
+            });
+        }
+    }
+
+    // Reports the outcome of a save made off the EDT.
+    private void showSaveResult(boolean saved, String successMessage) {
+        if (saved) {
+            JOptionPane.showMessageDialog(this, successMessage, "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Could not save the changes. Please try again.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Shows the groups as stored after an optimistic update and reports
+     * failures.
+     *
+     * @return Whether the update was stored or turned out to be unnecessary.
+     */
+    private boolean applyGroupUpdate(VersionedStore.Result<Group> result) {
+        if (result.getEntities() != null) {
+            groups = result.getEntities();
+            groupRoster = new GroupRoster(groups);
+            chapterIndex.setGroups(groups);
             populateGroupsTable();
             populateMyGroupsTable();
-            JOptionPane.showMessageDialog(this, "You have been removed from the group.", "Removal Successful",
-                    JOptionPane.INFORMATION_MESSAGE);
+        }
+        switch (result.getOutcome()) {
+            case UPDATED:
+            case UNCHANGED:
+                return true;
+            case NOT_FOUND:
+                JOptionPane.showMessageDialog(this, "The group no longer exists.", "Error", JOptionPane.ERROR_MESSAGE);
+                return false;
+            default:
+                JOptionPane.showMessageDialog(this, "Could not save the group.", "Error", JOptionPane.ERROR_MESSAGE);
+                return false;
         }
     }
 
@@ -403,9 +487,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
 
     private void populateMyGroupsTable() {
         myGroupsTableModel.setRowCount(0);
-        List<Group> myGroups = groups.stream()
-                .filter(g -> g.getTeacherIds() != null && g.getTeacherIds().contains(teacher.getId()))
-                .collect(Collectors.toList());
+        List<Group> myGroups = groupRoster.groupsOfTeacher(teacher.getId());
         for (Group g : myGroups) {
             String chapterName = getChapterNameById(g.getChapterId());
             int enrollees = (g.getStudentIds() != null) ? g.getStudentIds().size() : 0;
@@ -482,11 +564,15 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
             return;
         }
         Material material = new Material(IDGenerator.generateID(), title, type, content, selectedChapter.getId());
-        materials.add(material);
-        SerializationUtil.saveDataToDisk(materials, "materials.txt");
-        JOptionPane.showMessageDialog(this, "Material added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
         materialTitleField.setText("");
         materialContentField.setText("");
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.insert("materials.txt", material), result -> {
+            if (result.getEntities() != null) {
+                materials = result.getEntities();
+                chapterIndex.setMaterials(materials);
+            }
+            showSaveResult(result.getOutcome() == VersionedStore.Outcome.UPDATED, "Material added successfully.");
+        });
     }
 
     // -------------------- Create Test Tab --------------------
@@ -690,12 +776,13 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
                 q.setTestId(newTest.getId());
                 newTest.addQuestion(q);
             }
-            tests.add(newTest);
-            SerializationUtil.saveDataToDisk(tests, "tests.txt");
-            populateTestTable(testTableModel);
-            JOptionPane.showMessageDialog(dialog, "Test and questions added successfully.", "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
             dialog.dispose();
+            AsyncDataAccess.supplyToEdt(() -> VersionedStore.insert("tests.txt", newTest), result -> {
+                applyTestUpdate(result);
+                populateTestTable(testTableModel);
+                showSaveResult(result.getOutcome() == VersionedStore.Outcome.UPDATED,
+                        "Test and questions added successfully.");
+            });
         });
         dialog.setVisible(true);
     }
@@ -726,9 +813,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         gbc.gridx = 0;
         gbc.gridy = 2;
         createSessionPanel.add(groupLabel, gbc);
-        List<Group> teacherGroups = groups.stream()
-                .filter(g -> g.getTeacherIds() != null && g.getTeacherIds().contains(teacher.getId()))
-                .collect(Collectors.toList());
+        List<Group> teacherGroups = groupRoster.groupsOfTeacher(teacher.getId());
         if (teacherGroups.isEmpty()) {
             sessionGroupComboBox = new JComboBox<>(new Group[] {});
             sessionGroupComboBox.setEnabled(false);
@@ -766,11 +851,12 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         }
         Session session = teacher.createSession(title, dateTime, selectedGroup.getChapterId(), selectedGroup.getId());
         session.addTeacher(teacher.getId());
-        sessions.add(session);
-        SerializationUtil.saveDataToDisk(sessions, "sessions.txt");
-        JOptionPane.showMessageDialog(this, "Session added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
         sessionTitleField.setText("");
         sessionDateTimeField.setText("");
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.insert("sessions.txt", session), result -> {
+            applySessionUpdate(result);
+            showSaveResult(result.getOutcome() == VersionedStore.Outcome.UPDATED, "Session added successfully.");
+        });
     }
 
     // -------------------- View Test Results Tab --------------------
@@ -792,15 +878,14 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         testResultsTable = new JTable(testResultsTableModel);
         JScrollPane scrollPane = new JScrollPane(testResultsTable);
         viewTestResultsPanel.add(scrollPane, BorderLayout.CENTER);
+        testResultsSummaryLabel = new JLabel(" ");
+        viewTestResultsPanel.add(testResultsSummaryLabel, BorderLayout.SOUTH);
         viewTestResultsButton.addActionListener(e -> viewSelectedTestResults());
     }
 
     private void viewSelectedTestResults() {
         tests = SerializationUtil.readFromFile("tests.txt");
-        allTestResults = SerializationUtil.readFromFile("testResults.txt");
-        if (allTestResults == null) {
-            allTestResults = new ArrayList<>();
-        }
+        chapterIndex.setTests(tests);
         Test selectedTest = (Test) testSelectionComboBox.getSelectedItem();
         if (selectedTest == null) {
             JOptionPane.showMessageDialog(this, "Please select a test to view results.", "No Test Selected",
@@ -808,9 +893,12 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
             return;
         }
         testResultsTableModel.setRowCount(0);
-        List<TestResult> selectedTestResults = allTestResults.stream()
-                .filter(tr -> tr.getTestId().equals(selectedTest.getId()))
-                .collect(Collectors.toList());
+        Gradebook gradebook = Gradebook.getInstance();
+        List<TestResult> selectedTestResults = gradebook.getResultsForTest(selectedTest.getId());
+        GradeAggregate summary = gradebook.getTestGrades(selectedTest.getId());
+        testResultsSummaryLabel.setText((summary.getCount() == 0) ? " "
+                : String.format("Submissions: %d   Average: %.2f%%   Min: %.2f%%   Max: %.2f%%", summary.getCount(),
+                        summary.getAverage(), summary.getMin(), summary.getMax()));
         for (TestResult tr : selectedTestResults) {
             Student stu = students.stream().filter(s -> s.getId().equals(tr.getStudentId())).findFirst().orElse(null);
             String studentName = (stu != null) ? stu.getName() : "Unknown";
@@ -826,12 +914,108 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
     // This method refreshes the tests in the dropdown.
     private void updateTestSelectionComboBox() {
         tests = SerializationUtil.readFromFile("tests.txt"); // re-read tests
+        chapterIndex.setTests(tests);
         testSelectionComboBox.removeAllItems();
         for (Test t : tests) {
             testSelectionComboBox.addItem(t);
         }
     }
 
+    // -------------------- Grade Overview Tab --------------------
+    private static final String GROUP_BY_SUBJECT_CHAPTER_STUDENT = "Subject > Chapter > Student";
+    private static final String GROUP_BY_CHAPTER = "Chapter";
+    private static final String GROUP_BY_STUDENT = "Student";
+
+    private void initGradeOverviewTab() {
+        gradeOverviewPanel = new JPanel(new BorderLayout());
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(new JLabel("Group by:"));
+        gradeGroupingComboBox = new JComboBox<>(new String[] { GROUP_BY_SUBJECT_CHAPTER_STUDENT, GROUP_BY_CHAPTER,
+                GROUP_BY_STUDENT });
+        topPanel.add(gradeGroupingComboBox);
+        JButton refreshButton = new JButton("Refresh");
+        topPanel.add(refreshButton);
+        gradeOverviewPanel.add(topPanel, BorderLayout.NORTH);
+        gradeOverviewTableModel = new DefaultTableModel(
+                new Object[] { "Subject", "Chapter", "Student", "Submissions", "Average" }, 0);
+        gradeOverviewPanel.add(new JScrollPane(new JTable(gradeOverviewTableModel)), BorderLayout.CENTER);
+        gradeGroupingComboBox.addActionListener(e -> populateGradeOverviewTable());
+        refreshButton.addActionListener(e -> populateGradeOverviewTable());
+    }
+
+    private void populateGradeOverviewTable() {
+        String grouping = (String) gradeGroupingComboBox.getSelectedItem();
+        // Snapshots for the I/O thread; the grouping runs off the EDT.
+        List<Test> testList = new ArrayList<>(tests);
+        List<Chapter> chapterList = new ArrayList<>(chapters);
+        Map<String, String> subjectNames = new HashMap<>();
+        for (Subject s : subjects) {
+            subjectNames.put(s.getId(), s.getName());
+        }
+        Map<String, String> chapterNames = new HashMap<>();
+        for (Chapter c : chapters) {
+            chapterNames.put(c.getId(), c.getName());
+        }
+        Map<String, String> studentNames = new HashMap<>();
+        for (Student s : students) {
+            studentNames.put(s.getId(), s.getName());
+        }
+        AsyncDataAccess.supplyToEdt(() -> {
+            List<TestResult> results = Gradebook.getInstance().getAllResults();
+            GradeIndex index = new GradeIndex(testList, chapterList);
+            boolean parallel = results.size() >= ParallelGradeOrganizationStrategy.MIN_PARALLEL_RESULTS;
+            List<Object[]> rows = new ArrayList<>();
+            if (GROUP_BY_SUBJECT_CHAPTER_STUDENT.equals(grouping)) {
+                GradeLevel[] levels = { index.subjectLevel(), index.chapterLevel(), GradeLevel.STUDENT };
+                GradeTree tree = parallel ? GradeTree.organizeParallel(results, levels)
+                        : GradeTree.organize(results, levels);
+                for (Map.Entry<String, GradeTree> subject : tree.getChildren().entrySet()) {
+                    for (Map.Entry<String, GradeTree> chapter : subject.getValue().getChildren().entrySet()) {
+                        for (Map.Entry<String, GradeTree> student : chapter.getValue().getChildren().entrySet()) {
+                            rows.add(overviewRow(subjectNames.getOrDefault(subject.getKey(), subject.getKey()),
+                                    chapterNames.getOrDefault(chapter.getKey(), chapter.getKey()),
+                                    studentNames.getOrDefault(student.getKey(), student.getKey()),
+                                    student.getValue().getResults()));
+                        }
+                    }
+                }
+            } else if (GROUP_BY_CHAPTER.equals(grouping)) {
+                GradeOrganizationStrategy strategy = parallel
+                        ? new ParallelGradeOrganizationStrategy(index.chapterLevel())
+                        : new SubjectGradeOrganizationStrategy(index);
+                for (Map.Entry<String, List<TestResult>> chapter : strategy.organizeGrades(results).entrySet()) {
+                    String subjectId = index.subjectOf(chapter.getValue().get(0).getTestId());
+                    rows.add(overviewRow(subjectNames.getOrDefault(subjectId, ""),
+                            chapterNames.getOrDefault(chapter.getKey(), chapter.getKey()), "",
+                            chapter.getValue()));
+                }
+            } else {
+                GradeOrganizationStrategy strategy = parallel
+                        ? new ParallelGradeOrganizationStrategy(GradeLevel.STUDENT)
+                        : new StudentGradeOrganizationStrategy();
+                for (Map.Entry<String, List<TestResult>> student : strategy.organizeGrades(results).entrySet()) {
+                    rows.add(overviewRow("", "", studentNames.getOrDefault(student.getKey(), student.getKey()),
+                            student.getValue()));
+                }
+            }
+            return rows;
+        }, rows -> {
+            gradeOverviewTableModel.setRowCount(0);
+            for (Object[] row : rows) {
+                gradeOverviewTableModel.addRow(row);
+            }
+        });
+    }
+
+    private static Object[] overviewRow(String subject, String chapter, String student, List<TestResult> results) {
+        double sum = 0;
+        for (TestResult tr : results) {
+            sum += tr.getScore();
+        }
+        return new Object[] { subject, chapter, student, results.size(),
+                String.format("%.2f%%", sum / results.size()) };
+    }
+
     // -------------------- Sessions Tab --------------------
     private void initSessionsTab() {
         sessionsPanel = new JPanel(new BorderLayout());
@@ -852,18 +1036,18 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         joinSessionButton.addActionListener(e -> joinSelectedSession());
         endSessionButton.addActionListener(e -> endSelectedSession());
         sessionsTable.getSelectionModel().addListSelectionListener(e -> displaySessionDetails());
-        new Timer().schedule(new TimerTask() {
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    sessions = SerializationUtil.readFromFile("sessions.txt");
-                    if (sessions == null) {
-                        sessions = new ArrayList<>();
-                    }
-                    populateSessionsTable();
-                    displaySessionDetails();
-                });
-            }
-        }, 0, 5000);
+        populateSessionsTable();
+        // Reload the sessions whenever sessions.txt changes.
+        // The file is loaded on the I/O thread; only the table update runs on the EDT.
+        // The subscription is cancelled when the dashboard is disposed.
+        sessionsSubscription = FileChangeWatcher.subscribe(Session.class,
+                filePath -> AsyncDataAccess.<Session>loadList("sessions.txt")
+                        .thenAcceptAsync(snapshot -> {
+                            sessions = new ArrayList<>(snapshot);
+                            chapterIndex.setSessions(sessions);
+                            populateSessionsTable();
+                            displaySessionDetails();
+                        }, AsyncDataAccess.edt()));
     }
 
     private void populateSessionsTable() {
@@ -914,11 +1098,20 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to end the selected session?",
                 "Confirm End Session", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            sessions.removeIf(s -> s.getId().equals(sessionId));
-            SerializationUtil.saveDataToDisk(sessions, "sessions.txt");
-            populateSessionsTable();
-            JOptionPane.showMessageDialog(this, "Session ended successfully.", "Session Ended",
-                    JOptionPane.INFORMATION_MESSAGE);
+            AsyncDataAccess.supplyToEdt(() -> VersionedStore.<Session>delete("sessions.txt", sessionId), result -> {
+                applySessionUpdate(result);
+                switch (result.getOutcome()) {
+                    case UPDATED:
+                    case NOT_FOUND:
+                        // Also when someone else ended it first.
+                        AsyncDataAccess.io().execute(() -> ChatJournal.delete(sessionId));
+                        JOptionPane.showMessageDialog(this, "Session ended successfully.", "Session Ended",
+                                JOptionPane.INFORMATION_MESSAGE);
+                        break;
+                    default:
+                        showSaveResult(false, null);
+                }
+            });
         }
     }
 
@@ -935,15 +1128,52 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
             JOptionPane.showMessageDialog(this, "Selected session not found.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        if (!session.getTeacherIds().contains(teacher.getId())) {
-            session.addTeacher(teacher.getId());
-            SerializationUtil.saveDataToDisk(sessions, "sessions.txt");
+        if (session.getTeacherIds().contains(teacher.getId())) {
+            openSessionRoom(session);
+            return;
         }
-        // Open the session room (assumed to be implemented elsewhere)
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("sessions.txt", sessionId, (Session s) -> {
+            if (s.getTeacherIds().contains(teacher.getId())) {
+                return false;
+            }
+            s.addTeacher(teacher.getId());
+            return true;
+        }), result -> {
+            applySessionUpdate(result);
+            switch (result.getOutcome()) {
+                case UPDATED:
+                case UNCHANGED:
+                    Session joined = sessions.stream().filter(s -> s.getId().equals(sessionId)).findFirst()
+                            .orElse(null);
+                    if (joined != null) {
+                        openSessionRoom(joined);
+                    }
+                    break;
+                case NOT_FOUND:
+                    JOptionPane.showMessageDialog(this, "The session has ended.", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+                default:
+                    showSaveResult(false, null);
+            }
+        });
+    }
+
+    private void openSessionRoom(Session session) {
         SessionRoom room = new SessionRoom(this, session, teacher);
         room.setVisible(true);
     }
 
+    /**
+     * Shows the sessions as stored after an update.
+     */
+    private void applySessionUpdate(VersionedStore.Result<Session> result) {
+        if (result.getEntities() != null) {
+            sessions = result.getEntities();
+            chapterIndex.setSessions(sessions);
+            populateSessionsTable();
+        }
+    }
+
     // -------------------- Process Exam Tab --------------------
     private void initProcessExamTab() {
         processExamPanel = new JPanel(new BorderLayout());
@@ -976,7 +1206,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
                     JOptionPane.WARNING_MESSAGE);
             return;
         }
-        StandardExamProcessor processor = new StandardExamProcessor();
+        StandardExamProcessor processor = ParallelExamProcessor.forTest(selectedTest);
         try {
             processor.processExam(selectedTest);
             JOptionPane.showMessageDialog(this, "Exam '" + selectedTest.getTitle() + "' processed successfully.",
@@ -1066,6 +1296,8 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         gbc.gridwidth = 2;
         formPanel.add(buttonPanel, gbc);
         editTestPanel.add(formPanel, BorderLayout.CENTER);
+        undoHistoryLabel = new JLabel(" ");
+        editTestPanel.add(undoHistoryLabel, BorderLayout.SOUTH);
 
         loadTestButton.addActionListener(e -> loadSelectedTestForEditing());
         saveTestChangesButton.addActionListener(e -> saveTestEdits());
@@ -1088,6 +1320,7 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         testOriginator.setState(testCopy);
         testCaretaker.clear();
         testCaretaker.saveState(testOriginator.saveStateToMemento());
+        updateUndoHistoryLabel();
         JOptionPane.showMessageDialog(this, "Test loaded for editing.", "Load Successful",
                 JOptionPane.INFORMATION_MESSAGE);
     }
@@ -1112,16 +1345,45 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         // Update the originator state and save the new state to the undo stack.
         testOriginator.setState(currentState);
         testCaretaker.saveState(testOriginator.saveStateToMemento());
-        // Update the global tests list.
-        for (int i = 0; i < tests.size(); i++) {
-            if (tests.get(i).getId().equals(currentState.getId())) {
-                tests.set(i, currentState.copy());
-                break;
+        updateUndoHistoryLabel();
+        // Store only the edited fields, keeping results submitted meanwhile.
+        String title = currentState.getTitle();
+        String startTime = currentState.getStartTime();
+        int duration = currentState.getDuration();
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("tests.txt", currentState.getId(), (Test t) -> {
+            if (title.equals(t.getTitle()) && startTime.equals(t.getStartTime()) && duration == t.getDuration()) {
+                return false;
             }
+            t.setTitle(title);
+            t.setStartTime(startTime);
+            t.setDuration(duration);
+            return true;
+        }), result -> {
+            applyTestUpdate(result);
+            updateEditTestComboBox();
+            switch (result.getOutcome()) {
+                case UPDATED:
+                case UNCHANGED:
+                    showSaveResult(true, "Test changes saved.");
+                    break;
+                case NOT_FOUND:
+                    JOptionPane.showMessageDialog(this, "The test no longer exists.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    break;
+                default:
+                    showSaveResult(false, null);
+            }
+        });
+    }
+
+    /**
+     * Uses the tests as stored after an update.
+     */
+    private void applyTestUpdate(VersionedStore.Result<Test> result) {
+        if (result.getEntities() != null) {
+            tests = result.getEntities();
+            chapterIndex.setTests(tests);
         }
-        SerializationUtil.saveDataToDisk(tests, "tests.txt");
-        JOptionPane.showMessageDialog(this, "Test changes saved.", "Success", JOptionPane.INFORMATION_MESSAGE);
-        updateEditTestComboBox();
     }
 
     private void undoTestEdit() {
@@ -1130,8 +1392,15 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
             return;
         }
         TestMemento memento = testCaretaker.undo();
+        if (memento == null) {
+            JOptionPane.showMessageDialog(this, "Older edit history could not be read and was discarded.", "Undo",
+                    JOptionPane.WARNING_MESSAGE);
+            updateUndoHistoryLabel();
+            return;
+        }
         testOriginator.restoreState(memento);
         updateEditFieldsFromOriginator();
+        updateUndoHistoryLabel();
     }
 
     private void redoTestEdit() {
@@ -1142,6 +1411,13 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         TestMemento memento = testCaretaker.redo();
         testOriginator.restoreState(memento);
         updateEditFieldsFromOriginator();
+        updateUndoHistoryLabel();
+    }
+
+    private void updateUndoHistoryLabel() {
+        undoHistoryLabel.setText(String.format("Undo history: %d steps, %.1f KB in memory, %.1f KB on disk (%d steps)",
+                testCaretaker.getStepCount(), testCaretaker.getInMemoryBytes() / 1024.0,
+                testCaretaker.getSpilledBytes() / 1024.0, testCaretaker.getSpilledStepCount()));
     }
 
     private void updateEditFieldsFromOriginator() {
@@ -1158,23 +1434,24 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         }
     }
 
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (sessionsSubscription != null) {
+            sessionsSubscription.cancel();
+            sessionsSubscription = null;
+        }
+    }
+
     // -------------------- Utility Methods --------------------
     private String getChapterNameById(String chapterId) {
-        for (Chapter c : chapters) {
-            if (c.getId().equals(chapterId)) {
-                return c.getName();
-            }
-        }
-        return "Unknown";
+        Chapter c = chapterIndex.getChapter(chapterId);
+        return (c != null) ? c.getName() : "Unknown";
     }
 
     private String getGroupNameById(String groupId) {
-        for (Group g : groups) {
-            if (g.getId().equals(groupId)) {
-                return g.getGroupName();
-            }
-        }
-        return "Unknown";
+        Group g = chapterIndex.getGroup(groupId);
+        return (g != null) ? g.getGroupName() : "Unknown";
     }
 
     private String getTeacherNameById(String teacherId) {
@@ -1200,7 +1477,6 @@ public class TeacherDashboard extends JFrame implements SessionObserver {
         boolean exists = allUsers.stream().anyMatch(u -> u.getId().equals(sampleTeacher.getId()));
         if (!exists) {
             UserStorage.addUser(sampleTeacher);
-            SerializationUtil.saveDataToDisk(UserStorage.getUsers(), "users.txt");
         }
         new TeacherDashboard(sampleTeacher);
     }
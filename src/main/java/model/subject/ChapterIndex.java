@@ -0,0 +1,234 @@
+package model.subject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Secondary indexes over the loaded course data: the materials, tests, groups
+ * and sessions of each chapter, the sessions of each group and the chapters of
+ * each subject, plus chapters and groups by ID. Lookups cost the size of the
+ * result rather than the size of the data.
+ *
+ * The index does not watch the lists it was filled from: call the matching
+ * {@code set} method after (re)loading a list, and {@code add} or
+ * {@code remove} alongside inserting or deleting a single entity. Results keep
+ * the order in which the entities were added, i.e. the order of the list plus
+ * later inserts. Entities are indexed by ID, so of several entities with the
+ * same ID only the last one added is found.
+ */
+public class ChapterIndex {
+    private final KeyIndex<Chapter> chapters = new KeyIndex<>(Chapter::getId, Chapter::getSubjectId);
+    private final KeyIndex<Group> groups = new KeyIndex<>(Group::getId, Group::getChapterId);
+    private final KeyIndex<Material> materials = new KeyIndex<>(Material::getId, Material::getChapterId);
+    private final KeyIndex<Test> tests = new KeyIndex<>(Test::getId, Test::getChapterId);
+    private final KeyIndex<Session> sessions = new KeyIndex<>(Session::getId, Session::getChapterId,
+            Session::getGroupId);
+
+    // Entities by ID and by one or more secondary keys (e.g. chapter ID).
+    private static final class KeyIndex<T> {
+        private final Function<T, String> idOf;
+        private final List<Function<T, String>> keysOf;
+        private final Map<String, T> byId = new HashMap<>();
+        private final List<Map<String, Map<String, T>>> byKey = new ArrayList<>();
+        // Insertion order of each ID, to merge results of several keys.
+        private final Map<String, Long> sequence = new HashMap<>();
+        private long nextSequence;
+
+        @SafeVarargs
+        KeyIndex(Function<T, String> idOf, Function<T, String>... keysOf) {
+            this.idOf = idOf;
+            // Copied rather than wrapped, so the varargs array does not escape.
+            List<Function<T, String>> keys = new ArrayList<>(keysOf.length);
+            for (Function<T, String> keyOf : keysOf) {
+                keys.add(keyOf);
+                byKey.add(new HashMap<>());
+            }
+            this.keysOf = keys;
+        }
+
+        void set(Collection<T> entities) {
+            byId.clear();
+            sequence.clear();
+            for (Map<String, Map<String, T>> index : byKey) {
+                index.clear();
+            }
+            if (entities != null) {
+                for (T entity : entities) {
+                    add(entity);
+                }
+            }
+        }
+
+        void add(T entity) {
+            String id = idOf.apply(entity);
+            remove(id);
+            byId.put(id, entity);
+            sequence.put(id, nextSequence++);
+            for (int i = 0; i < keysOf.size(); i++) {
+                byKey.get(i).computeIfAbsent(keysOf.get(i).apply(entity), k -> new LinkedHashMap<>()).put(id, entity);
+            }
+        }
+
+        void remove(String id) {
+            T entity = byId.remove(id);
+            if (entity == null) {
+                return;
+            }
+            sequence.remove(id);
+            for (int i = 0; i < keysOf.size(); i++) {
+                String key = keysOf.get(i).apply(entity);
+                Map<String, T> entities = byKey.get(i).get(key);
+                if (entities != null) {
+                    entities.remove(id);
+                    if (entities.isEmpty()) {
+                        byKey.get(i).remove(key);
+                    }
+                }
+            }
+        }
+
+        T get(String id) {
+            return byId.get(id);
+        }
+
+        List<T> find(int keyIndex, String key) {
+            Map<String, T> entities = byKey.get(keyIndex).get(key);
+            return (entities != null) ? new ArrayList<>(entities.values()) : Collections.emptyList();
+        }
+
+        List<T> findAll(int keyIndex, Collection<String> keys) {
+            List<T> found = new ArrayList<>();
+            for (String key : keys) {
+                Map<String, T> entities = byKey.get(keyIndex).get(key);
+                if (entities != null) {
+                    found.addAll(entities.values());
+                }
+            }
+            if (keys.size() > 1) {
+                found.sort(Comparator.comparingLong(entity -> sequence.get(idOf.apply(entity))));
+            }
+            return found;
+        }
+    }
+
+    // Loaded lists
+
+    public synchronized void setChapters(Collection<Chapter> chapters) {
+        this.chapters.set(chapters);
+    }
+
+    public synchronized void setGroups(Collection<Group> groups) {
+        this.groups.set(groups);
+    }
+
+    public synchronized void setMaterials(Collection<Material> materials) {
+        this.materials.set(materials);
+    }
+
+    public synchronized void setTests(Collection<Test> tests) {
+        this.tests.set(tests);
+    }
+
+    public synchronized void setSessions(Collection<Session> sessions) {
+        this.sessions.set(sessions);
+    }
+
+    // Inserts and deletes
+
+    public synchronized void add(Chapter chapter) {
+        chapters.add(chapter);
+    }
+
+    public synchronized void add(Group group) {
+        groups.add(group);
+    }
+
+    public synchronized void add(Material material) {
+        materials.add(material);
+    }
+
+    public synchronized void add(Test test) {
+        tests.add(test);
+    }
+
+    public synchronized void add(Session session) {
+        sessions.add(session);
+    }
+
+    public synchronized void removeChapter(String chapterId) {
+        chapters.remove(chapterId);
+    }
+
+    public synchronized void removeGroup(String groupId) {
+        groups.remove(groupId);
+    }
+
+    public synchronized void removeMaterial(String materialId) {
+        materials.remove(materialId);
+    }
+
+    public synchronized void removeTest(String testId) {
+        tests.remove(testId);
+    }
+
+    public synchronized void removeSession(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    // Lookups
+
+    /**
+     * @return The chapter with the given ID, or null.
+     */
+    public synchronized Chapter getChapter(String chapterId) {
+        return chapters.get(chapterId);
+    }
+
+    /**
+     * @return The group with the given ID, or null.
+     */
+    public synchronized Group getGroup(String groupId) {
+        return groups.get(groupId);
+    }
+
+    public synchronized List<Chapter> chaptersOfSubject(String subjectId) {
+        return chapters.find(0, subjectId);
+    }
+
+    public synchronized List<Group> groupsOfChapter(String chapterId) {
+        return groups.find(0, chapterId);
+    }
+
+    public synchronized List<Material> materialsOfChapter(String chapterId) {
+        return materials.find(0, chapterId);
+    }
+
+    /**
+     * @return The materials of all the given chapters, in list order.
+     */
+    public synchronized List<Material> materialsOfChapters(Collection<String> chapterIds) {
+        return materials.findAll(0, chapterIds);
+    }
+
+    public synchronized List<Test> testsOfChapter(String chapterId) {
+        return tests.find(0, chapterId);
+    }
+
+    public synchronized List<Session> sessionsOfChapter(String chapterId) {
+        return sessions.find(0, chapterId);
+    }
+
+    /**
+     * @return The sessions of all the given groups, in list order.
+     */
+    public synchronized List<Session> sessionsOfGroups(Collection<String> groupIds) {
+        return sessions.findAll(1, groupIds);
+    }
+}
@@ -1,23 +1,40 @@
 package model.subject;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class Group implements Serializable {
+import utils.MemberList;
+import utils.tx.Versioned;
+
+public class Group implements Serializable, Versioned {
     private static final long serialVersionUID = 1L;
     private String id;
     private String groupName;
     private String chapterId;
-    private ArrayList<String> teacherIds;
-    private ArrayList<String> studentIds;
+    private List<String> teacherIds;
+    private List<String> studentIds;
+    // Incremented by each update made through VersionedStore.
+    private long version;
+
+    // Stamp of this group's last membership change, so a GroupRoster can tell
+    // which groups changed since it indexed them.
+    private transient long membershipStamp;
+
+    // Sequence of membership stamps of all groups; its value tells whether any
+    // group changed at all.
+    private static final AtomicLong membershipChanges = new AtomicLong();
 
     public Group(String id, String groupName, String chapterId, List<String> teacherIds) {
         this.id = id;
         this.groupName = groupName;
         this.chapterId = chapterId;
-        this.teacherIds = new ArrayList<>(teacherIds);
-        this.studentIds = new ArrayList<>();
+        this.teacherIds = new MemberList(teacherIds);
+        this.studentIds = new MemberList();
+        membershipChanged();
     }
 
     // Getters and Setters
@@ -33,38 +50,88 @@ public class Group implements Serializable {
         return chapterId;
     }
 
-    public ArrayList<String> getTeacherIds() {
-        return teacherIds;
+    /**
+     * @return The teachers' IDs, in the order they were assigned. Read-only;
+     *         use {@link #addTeacher} and {@link #removeTeacher}.
+     */
+    public List<String> getTeacherIds() {
+        return Collections.unmodifiableList(teacherIds);
     }
 
+    /**
+     * @return The students' IDs, in the order they enrolled. Read-only; use
+     *         {@link #addStudent} and {@link #removeStudent}.
+     */
     public List<String> getStudentIds() {
-        return studentIds;
+        return Collections.unmodifiableList(studentIds);
     }
 
     // Methods to manage teachers
     public void addTeacher(String teacherId) {
-        if (!teacherIds.contains(teacherId)) {
-            teacherIds.add(teacherId);
+        if (teacherIds.add(teacherId)) {
+            membershipChanged();
         }
     }
 
     public void removeTeacher(String teacherId) {
-        teacherIds.remove(teacherId);
+        if (teacherIds.remove(teacherId)) {
+            membershipChanged();
+        }
+    }
+
+    public boolean hasTeacher(String teacherId) {
+        return teacherIds.contains(teacherId);
     }
 
     // Methods to manage students
     public void addStudent(String studentId) {
-        if (!studentIds.contains(studentId)) {
-            studentIds.add(studentId);
+        if (studentIds.add(studentId)) {
+            membershipChanged();
         }
     }
 
     public void removeStudent(String studentId) {
-        studentIds.remove(studentId);
+        if (studentIds.remove(studentId)) {
+            membershipChanged();
+        }
+    }
+
+    public boolean hasStudent(String studentId) {
+        return studentIds.contains(studentId);
+    }
+
+    static long getMembershipChanges() {
+        return membershipChanges.get();
+    }
+
+    long getMembershipStamp() {
+        return membershipStamp;
+    }
+
+    private void membershipChanged() {
+        membershipStamp = membershipChanges.incrementAndGet();
+    }
+
+    // Files saved before member lists existed hold plain lists.
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        teacherIds = MemberList.of(teacherIds);
+        studentIds = MemberList.of(studentIds);
+        membershipChanged();
     }
 
     @Override
     public String toString() {
         return groupName;
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,173 @@
+package model.subject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import utils.IdDictionary;
+
+/**
+ * Reverse index of a list of groups: the groups each student is enrolled in
+ * and the groups each teacher is assigned to, in the order of the list.
+ *
+ * The index follows changes made through {@link Group#addStudent},
+ * {@link Group#addTeacher} and the matching remove methods: the first lookup
+ * after such a change re-indexes only the groups that changed. Adding groups to
+ * or removing them from the list rebuilds the index. Lookups with no change in
+ * between take constant time. Replace the roster when the list itself is
+ * replaced.
+ */
+public class GroupRoster {
+    private static final int[] NO_KEYS = new int[0];
+
+    private final List<Group> groups;
+    // Keyed by IdDictionary keys.
+    private Map<Integer, List<Group>> byStudent = Collections.emptyMap();
+    private Map<Integer, List<Group>> byTeacher = Collections.emptyMap();
+    private long indexedChanges = -1;
+    // The indexed groups, with their position in the list, their membership
+    // stamps and member keys as of indexing.
+    private Group[] indexed = new Group[0];
+    private final Map<Group, Integer> positions = new IdentityHashMap<>();
+    private long[] stamps = new long[0];
+    private int[][] studentKeys = new int[0][];
+    private int[][] teacherKeys = new int[0][];
+
+    /**
+     * @param groups The groups to index; the roster keeps using this list.
+     */
+    public GroupRoster(List<Group> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * @param studentId A student's ID.
+     * @return The groups the student is enrolled in; read-only.
+     */
+    public synchronized List<Group> groupsOfStudent(String studentId) {
+        refreshIfStale();
+        return lookup(byStudent, studentId);
+    }
+
+    /**
+     * @param teacherId A teacher's ID.
+     * @return The groups the teacher is assigned to; read-only.
+     */
+    public synchronized List<Group> groupsOfTeacher(String teacherId) {
+        refreshIfStale();
+        return lookup(byTeacher, teacherId);
+    }
+
+    private static List<Group> lookup(Map<Integer, List<Group>> index, String id) {
+        List<Group> found = index.get(IdDictionary.lookup(id));
+        return (found != null) ? Collections.unmodifiableList(found) : Collections.emptyList();
+    }
+
+    private void refreshIfStale() {
+        long changes = Group.getMembershipChanges();
+        if (changes == indexedChanges && groups.size() == indexed.length) {
+            return;
+        }
+        if (sameGroups()) {
+            for (int i = 0; i < indexed.length; i++) {
+                if (indexed[i].getMembershipStamp() != stamps[i]) {
+                    reindex(i);
+                }
+            }
+        } else {
+            rebuild();
+        }
+        indexedChanges = changes;
+    }
+
+    private boolean sameGroups() {
+        if (groups.size() != indexed.length) {
+            return false;
+        }
+        for (int i = 0; i < indexed.length; i++) {
+            if (groups.get(i) != indexed[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rebuild() {
+        int size = groups.size();
+        indexed = groups.toArray(new Group[0]);
+        positions.clear();
+        stamps = new long[size];
+        studentKeys = new int[size][];
+        teacherKeys = new int[size][];
+        byStudent = new HashMap<>();
+        byTeacher = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Group g = indexed[i];
+            positions.put(g, i);
+            stamps[i] = g.getMembershipStamp();
+            studentKeys[i] = keysOf(g.getStudentIds());
+            teacherKeys[i] = keysOf(g.getTeacherIds());
+            // In list order, so appending keeps each list ordered.
+            for (int key : studentKeys[i]) {
+                byStudent.computeIfAbsent(key, k -> new ArrayList<>()).add(g);
+            }
+            for (int key : teacherKeys[i]) {
+                byTeacher.computeIfAbsent(key, k -> new ArrayList<>()).add(g);
+            }
+        }
+    }
+
+    // Replaces the entries of one group whose members changed.
+    private void reindex(int i) {
+        Group g = indexed[i];
+        stamps[i] = g.getMembershipStamp();
+        int[] students = keysOf(g.getStudentIds());
+        int[] teachers = keysOf(g.getTeacherIds());
+        move(byStudent, g, studentKeys[i], students);
+        move(byTeacher, g, teacherKeys[i], teachers);
+        studentKeys[i] = students;
+        teacherKeys[i] = teachers;
+    }
+
+    private void move(Map<Integer, List<Group>> index, Group g, int[] oldKeys, int[] newKeys) {
+        for (int key : oldKeys) {
+            List<Group> found = index.get(key);
+            if (found != null) {
+                found.remove(g);
+                if (found.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+        int position = positions.get(g);
+        for (int key : newKeys) {
+            List<Group> found = index.computeIfAbsent(key, k -> new ArrayList<>());
+            // Keep list order: insert before the first later group.
+            int low = 0;
+            int high = found.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (positions.get(found.get(mid)) < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            found.add(low, g);
+        }
+    }
+
+    private static int[] keysOf(List<String> ids) {
+        if (ids.isEmpty()) {
+            return NO_KEYS;
+        }
+        int[] keys = new int[ids.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = IdDictionary.keyOf(ids.get(i));
+        }
+        return keys;
+    }
+}
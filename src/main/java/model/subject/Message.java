@@ -18,6 +18,13 @@ public class Message implements Serializable {
         this.timestamp = LocalDateTime.now();
     }
 
+    public Message(String senderId, String senderName, String content, LocalDateTime timestamp) {
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.content = content;
+        this.timestamp = timestamp;
+    }
+
     // Getters
     public String getSenderId() {
         return senderId;
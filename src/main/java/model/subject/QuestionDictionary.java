@@ -0,0 +1,87 @@
+package model.subject;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The question IDs of a test, in question order. Test results refer to a
+ * test's dictionary and store their answers by question position instead of by
+ * ID (see {@link TestResult#getPackedAnswers()}). A dictionary never changes;
+ * editing a test's questions gives the test a new one.
+ */
+public class QuestionDictionary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] questionIds;
+    private transient volatile Map<String, Integer> positions;
+
+    public QuestionDictionary(String[] questionIds) {
+        this.questionIds = questionIds.clone();
+    }
+
+    /**
+     * @param questions The questions of a test.
+     * @return A dictionary of their IDs, in order.
+     */
+    public static QuestionDictionary of(List<Question> questions) {
+        String[] ids = new String[questions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = questions.get(i).getId();
+        }
+        return new QuestionDictionary(ids);
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public String getQuestionId(int position) {
+        return questionIds[position];
+    }
+
+    /**
+     * @param questionId A question ID.
+     * @return The position of the question, or -1 if it is not in the
+     *         dictionary.
+     */
+    public int positionOf(Object questionId) {
+        Map<String, Integer> index = positions;
+        if (index == null) {
+            index = new HashMap<>(questionIds.length * 2);
+            for (int i = questionIds.length - 1; i >= 0; i--) {
+                index.put(questionIds[i], i);
+            }
+            positions = index;
+        }
+        Integer position = index.get(questionId);
+        return (position != null) ? position : -1;
+    }
+
+    /**
+     * @param questions The current questions of a test.
+     * @return True if this dictionary lists exactly their IDs, in order.
+     */
+    public boolean matches(List<Question> questions) {
+        if (questions.size() != questionIds.length) {
+            return false;
+        }
+        for (int i = 0; i < questionIds.length; i++) {
+            if (!Objects.equals(questionIds[i], questions.get(i).getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param other Another dictionary.
+     * @return True if both list the same IDs in the same order.
+     */
+    public boolean sameIds(QuestionDictionary other) {
+        return other == this || (other != null && Arrays.equals(questionIds, other.questionIds));
+    }
+}
@@ -0,0 +1,184 @@
+package model.subject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import utils.IdDictionary;
+import utils.RoaringBitmap;
+
+/**
+ * Set algebra over the students of a list of groups, e.g. "students in grp1
+ * and grp3 but in no physics group":
+ *
+ * <pre>
+ * RosterQuery q = new RosterQuery(groups);
+ * int count = q.group("grp1").and(q.group("grp3"))
+ *         .andNot(q.anyGroup(g -&gt; physicsChapterIds.contains(g.getChapterId())))
+ *         .count();
+ * </pre>
+ *
+ * Each group's students are kept as a compressed bitmap of their
+ * {@link IdDictionary} keys, built on first use and rebuilt only for groups
+ * whose members changed since (see {@link GroupRoster}), so combining cohorts
+ * and counting them never builds lists of IDs.
+ */
+public class RosterQuery {
+    private final List<Group> groups;
+    private final Map<String, Students> studentsByGroup = new HashMap<>();
+    private long indexedChanges = -1;
+    private int indexedSize = -1;
+
+    // A group's students as of its membership stamp.
+    private static final class Students {
+        final Group group;
+        final long stamp;
+        final RoaringBitmap bitmap;
+
+        Students(Group group) {
+            this.group = group;
+            this.stamp = group.getMembershipStamp();
+            this.bitmap = new RoaringBitmap();
+            for (String studentId : group.getStudentIds()) {
+                bitmap.add(IdDictionary.keyOf(studentId));
+            }
+        }
+    }
+
+    /**
+     * A set of students. Cohorts are immutable; combining them returns a new
+     * one.
+     */
+    public static final class Cohort {
+        private static final Cohort EMPTY = new Cohort(new RoaringBitmap());
+
+        private final RoaringBitmap students;
+
+        private Cohort(RoaringBitmap students) {
+            this.students = students;
+        }
+
+        /**
+         * @return The students in this cohort or the other one.
+         */
+        public Cohort or(Cohort other) {
+            return new Cohort(RoaringBitmap.or(students, other.students));
+        }
+
+        /**
+         * @return The students in both cohorts.
+         */
+        public Cohort and(Cohort other) {
+            return new Cohort(RoaringBitmap.and(students, other.students));
+        }
+
+        /**
+         * @return The students in this cohort but not in the other one.
+         */
+        public Cohort andNot(Cohort other) {
+            return new Cohort(RoaringBitmap.andNot(students, other.students));
+        }
+
+        public int count() {
+            return students.getCardinality();
+        }
+
+        /**
+         * @return The number of students in both cohorts, without building
+         *         their intersection.
+         */
+        public int countAnd(Cohort other) {
+            return RoaringBitmap.andCardinality(students, other.students);
+        }
+
+        /**
+         * @return The number of students in this cohort but not in the other.
+         */
+        public int countAndNot(Cohort other) {
+            return RoaringBitmap.andNotCardinality(students, other.students);
+        }
+
+        public boolean contains(String studentId) {
+            return students.contains(IdDictionary.lookup(studentId));
+        }
+
+        /**
+         * @return The students' IDs, in no particular order.
+         */
+        public List<String> getStudentIds() {
+            List<String> ids = new ArrayList<>(count());
+            students.forEach(key -> ids.add(IdDictionary.idOf(key)));
+            return ids;
+        }
+    }
+
+    /**
+     * @param groups The groups to query; the query keeps using this list.
+     */
+    public RosterQuery(List<Group> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * @param groupId A group's ID.
+     * @return Its students; empty if there is no such group.
+     */
+    public synchronized Cohort group(String groupId) {
+        refreshIfStale();
+        Students students = studentsByGroup.get(groupId);
+        if (students == null) {
+            for (Group g : groups) {
+                if (g.getId().equals(groupId)) {
+                    students = new Students(g);
+                    studentsByGroup.put(groupId, students);
+                    break;
+                }
+            }
+        }
+        return (students != null) ? new Cohort(students.bitmap) : Cohort.EMPTY;
+    }
+
+    /**
+     * @param filter Selects groups, e.g. by chapter.
+     * @return The students of any selected group.
+     */
+    public synchronized Cohort anyGroup(Predicate<Group> filter) {
+        refreshIfStale();
+        RoaringBitmap students = new RoaringBitmap();
+        for (Group g : groups) {
+            if (filter.test(g)) {
+                students.addAll(studentsByGroup.computeIfAbsent(g.getId(), id -> new Students(g)).bitmap);
+            }
+        }
+        return new Cohort(students);
+    }
+
+    /**
+     * @param teacherId A teacher's ID.
+     * @return The students of all groups the teacher is assigned to.
+     */
+    public Cohort reachOf(String teacherId) {
+        return anyGroup(g -> g.hasTeacher(teacherId));
+    }
+
+    // Drops the bitmaps of groups that changed or left the list.
+    private void refreshIfStale() {
+        long changes = Group.getMembershipChanges();
+        if (changes == indexedChanges && groups.size() == indexedSize) {
+            return;
+        }
+        Map<String, Students> current = new HashMap<>();
+        for (Group g : groups) {
+            Students students = studentsByGroup.get(g.getId());
+            if (students != null && students.group == g && students.stamp == g.getMembershipStamp()) {
+                current.put(g.getId(), students);
+            }
+        }
+        studentsByGroup.clear();
+        studentsByGroup.putAll(current);
+        indexedChanges = changes;
+        indexedSize = groups.size();
+    }
+}
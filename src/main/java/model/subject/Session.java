@@ -1,12 +1,17 @@
 package model.subject;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import utils.MemberList;
+import utils.observer.SessionEventDispatcher;
 import utils.observer.SessionObserver;
+import utils.tx.Versioned;
 
-public class Session implements Serializable {
+public class Session implements Serializable, Versioned {
     private static final long serialVersionUID = 1L;
     private String id;
     private String title;
@@ -16,6 +21,8 @@ public class Session implements Serializable {
     private List<Message> messages;
     private List<String> teacherIds;
     private List<String> studentIds; // Tracks students currently in the session
+    // Incremented by each update made through VersionedStore.
+    private long version;
 
     private transient List<SessionObserver> observers = new ArrayList<>();
 
@@ -26,8 +33,8 @@ public class Session implements Serializable {
         this.chapterId = chapterId;
         this.groupId = groupId;
         this.messages = new ArrayList<>();
-        this.teacherIds = new ArrayList<>();
-        this.studentIds = new ArrayList<>();
+        this.teacherIds = new MemberList();
+        this.studentIds = new MemberList();
         this.observers = new ArrayList<>();
     }
 
@@ -78,13 +85,17 @@ public class Session implements Serializable {
         if (!studentIds.contains(studentId)) {
             studentIds.add(studentId);
             // Notify observers (the teacher) when a student joins.
-            notifyObservers("Student with ID " + studentId + " has joined the session: " + title);
+            if (hasObservers()) {
+                SessionEventDispatcher.getDefault().studentJoined(this, observers, studentId);
+            }
         }
     }
 
     public void removeStudent(String studentId) {
         studentIds.remove(studentId);
-        notifyObservers("Student with ID " + studentId + " has left the session: " + title);
+        if (hasObservers()) {
+            SessionEventDispatcher.getDefault().studentLeft(this, observers, studentId);
+        }
     }
 
     public void addMessage(Message message) {
@@ -107,14 +118,28 @@ public class Session implements Serializable {
         }
     }
 
+    /**
+     * Notifies the observers asynchronously; see {@link SessionEventDispatcher}.
+     *
+     * @param message The notification text.
+     */
     public void notifyObservers(String message) {
-        if (observers != null) {
-            for (SessionObserver observer : observers) {
-                observer.update(this, message);
-            }
+        if (hasObservers()) {
+            SessionEventDispatcher.getDefault().message(this, observers, message);
         }
     }
 
+    // Files saved before member lists existed hold plain lists.
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        teacherIds = MemberList.of(teacherIds);
+        studentIds = MemberList.of(studentIds);
+    }
+
+    private boolean hasObservers() {
+        return observers != null && !observers.isEmpty();
+    }
+
     @Override
     public String toString() {
         return "Session{" +
@@ -123,4 +148,14 @@ public class Session implements Serializable {
                 ", dateTime='" + dateTime + '\'' +
                 '}';
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
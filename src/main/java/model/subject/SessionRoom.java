@@ -4,15 +4,24 @@ import model.user.Student;
 import model.user.Teacher;
 import model.user.User;
 import model.user.UserStorage;
+import utils.AsyncDataAccess;
 import utils.SerializationUtil;
+import utils.log.ChatJournal;
+import utils.observer.FileChangeWatcher;
 import utils.observer.SessionObserver;
+import utils.server.SessionClient;
+import utils.tx.VersionedStore;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 public class SessionRoom extends JDialog implements SessionObserver {
     private Session session;
@@ -24,22 +33,94 @@ public class SessionRoom extends JDialog implements SessionObserver {
     private DefaultTableModel participantsTableModel;
     private JTable participantsTable;
     private JButton removeStudentButton;
-    private Timer refreshTimer;
+    private FileChangeWatcher.Subscription sessionsSubscription;
+    private FileChangeWatcher.Subscription chatSubscription;
+    private ChatJournal chatJournal;
+    // Connection to the session server, or null to follow the data files.
+    private SessionClient client;
+    // Messages at journal offsets below this were loaded as history.
+    private long historyOffset;
+    // Presence reported by the session server. Kept here rather than on the
+    // session, which is shared through the entity cache and only changed by
+    // saving it. EDT only.
+    private final Set<String> joinedIds = new LinkedHashSet<>();
+    private final Set<String> removedIds = new HashSet<>();
 
     public SessionRoom(JFrame parent, Session session, User user) {
         super(parent, "Session: " + session.getTitle(), true);
         this.session = session;
         this.currentUser = user;
+        this.chatJournal = new ChatJournal(session.getId());
+        // Join before loading the history: events are handled on the EDT after
+        // this constructor, and anything already in the history is skipped.
+        connectToServer();
         initComponents();
         // If the current user is a teacher, attach this SessionRoom as an observer
         if (currentUser instanceof Teacher) {
             session.attachObserver(this);
         }
-        startRefreshTimer();
+        if (client == null) {
+            subscribeToSessionChanges();
+        }
+    }
+
+    private void connectToServer() {
+        client = SessionClient.connectIfAvailable(new SessionClient.Listener() {
+            @Override
+            public void participantJoined(String sessionId, String userId, String userName) {
+                SwingUtilities.invokeLater(() -> {
+                    removedIds.remove(userId);
+                    if (!session.getTeacherIds().contains(userId) && !session.getStudentIds().contains(userId)) {
+                        joinedIds.add(userId);
+                    }
+                    loadParticipants();
+                });
+            }
+
+            @Override
+            public void participantLeft(String sessionId, String userId) {
+            }
+
+            @Override
+            public void participantRemoved(String sessionId, String userId) {
+                SwingUtilities.invokeLater(() -> {
+                    if (userId.equals(currentUser.getId())) {
+                        JOptionPane.showMessageDialog(thisDialog(),
+                                "You have been removed from this session by the teacher.",
+                                "Session Ended", JOptionPane.INFORMATION_MESSAGE);
+                        dispose();
+                        return;
+                    }
+                    joinedIds.remove(userId);
+                    removedIds.add(userId);
+                    loadParticipants();
+                });
+            }
+
+            @Override
+            public void messageReceived(String sessionId, Message message, long journalOffset) {
+                SwingUtilities.invokeLater(() -> {
+                    if (journalOffset < 0 || journalOffset >= historyOffset) {
+                        chatArea.append(message.getSenderName() + ": " + message.getContent() + "\n");
+                    }
+                });
+            }
+
+            @Override
+            public void disconnected() {
+                SwingUtilities.invokeLater(() -> followFiles());
+            }
+        });
+        if (client != null) {
+            client.join(session.getId(), currentUser.getId(), currentUser.getName());
+        }
     }
 
     private void initComponents() {
         setSize(800, 600);
+        // Closing must run dispose(), which leaves the session and cancels the
+        // subscriptions.
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         setLayout(new BorderLayout());
 
         // Chat Panel
@@ -83,60 +164,144 @@ public class SessionRoom extends JDialog implements SessionObserver {
         loadParticipants();
     }
 
-    private void startRefreshTimer() {
-        refreshTimer = new Timer();
-        refreshTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    // Reload the session from disk
-                    ArrayList<Session> sessionsList = SerializationUtil.readFromFile("sessions.txt");
-                    if (sessionsList != null) {
-                        for (Session s : sessionsList) {
-                            if (s.getId().equals(session.getId())) {
-                                session = s;
-                                break;
-                            }
-                        }
-                    }
-                    // Check if a student has been removed (for student users)
-                    if (currentUser instanceof Student) {
-                        if (!session.getStudentIds().contains(currentUser.getId())) {
-                            JOptionPane.showMessageDialog(thisDialog(),
-                                    "You have been removed from this session by the teacher.",
-                                    "Session Ended", JOptionPane.INFORMATION_MESSAGE);
-                            dispose();
-                            return;
-                        }
+    // The server went away, e.g. the instance hosting it exited: follow the
+    // data files instead, redisplaying the chat from the journal, which also
+    // holds the messages relayed while connected.
+    private void followFiles() {
+        if (!isDisplayable() || sessionsSubscription != null) {
+            return;
+        }
+        client = null;
+        joinedIds.clear();
+        removedIds.clear();
+        subscribeToSessionChanges();
+        chatJournal.restart();
+        AsyncDataAccess.supplyToEdt(chatJournal::readNew, messages -> {
+            if (isDisplayable()) {
+                chatArea.setText("");
+                session.getMessages().forEach(
+                        msg -> chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n"));
+                showMessages(messages);
+            }
+        });
+        refreshFromDisk();
+    }
+
+    private void subscribeToSessionChanges() {
+        // Refresh only when sessions.txt actually changes.
+        sessionsSubscription = FileChangeWatcher.subscribe(Session.class,
+                filePath -> refreshFromDisk());
+        // New chat messages only touch the session's journal.
+        chatSubscription = FileChangeWatcher.subscribe(chatJournal.getPath(),
+                filePath -> readNewMessages());
+    }
+
+    // A session reloaded from disk with its participant rows, built off the EDT.
+    private static class Refresh {
+        private Session session;
+        private List<Object[]> participants;
+    }
+
+    private void refreshFromDisk() {
+        String sessionId = session.getId();
+        AsyncDataAccess.supplyToEdt(() -> {
+            Refresh refresh = new Refresh();
+            ArrayList<Session> sessionsList = SerializationUtil.readFromFile("sessions.txt");
+            if (sessionsList != null) {
+                for (Session s : sessionsList) {
+                    if (s.getId().equals(sessionId)) {
+                        refresh.session = s;
+                        break;
                     }
-                    loadMessages();
-                    loadParticipants();
-                });
+                }
+            }
+            if (refresh.session != null) {
+                refresh.participants = participantRows(refresh.session, Collections.emptyList(),
+                        Collections.emptySet());
+            }
+            return refresh;
+        }, this::applyRefresh);
+    }
+
+    private void applyRefresh(Refresh refresh) {
+        if (!isDisplayable() || refresh.session == null) {
+            return;
+        }
+        session = refresh.session;
+        // Check if a student has been removed (for student users)
+        if (currentUser instanceof Student) {
+            if (!session.getStudentIds().contains(currentUser.getId())) {
+                JOptionPane.showMessageDialog(thisDialog(),
+                        "You have been removed from this session by the teacher.",
+                        "Session Ended", JOptionPane.INFORMATION_MESSAGE);
+                dispose();
+                return;
             }
-        }, 0, 5000);
+        }
+        showParticipants(refresh.participants);
     }
 
     private Component thisDialog() {
         return this;
     }
 
+    // Shows messages stored on the session itself (written before chat moved to
+    // the journal), followed by everything in the journal.
     private void loadMessages() {
         chatArea.setText("");
         session.getMessages().forEach(msg -> chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n"));
+        appendNewMessages();
+        historyOffset = chatJournal.getOffset();
+    }
+
+    private void appendNewMessages() {
+        showMessages(chatJournal.readNew());
+    }
+
+    private void readNewMessages() {
+        AsyncDataAccess.supplyToEdt(chatJournal::readNew, messages -> {
+            if (isDisplayable()) {
+                showMessages(messages);
+            }
+        });
+    }
+
+    private void showMessages(List<Message> messages) {
+        for (Message msg : messages) {
+            chatArea.append(msg.getSenderName() + ": " + msg.getContent() + "\n");
+        }
     }
 
     private void loadParticipants() {
-        participantsTableModel.setRowCount(0);
+        showParticipants(participantRows(session, joinedIds, removedIds));
+    }
+
+    // The session's teachers and students, plus participants who joined
+    // through the server, minus those the server reported removed.
+    private static List<Object[]> participantRows(Session session, Collection<String> joined,
+            Set<String> removed) {
+        List<Object[]> rows = new ArrayList<>();
         session.getTeacherIds().forEach(tId -> {
             User u = UserStorage.getUserById(tId);
             if (u != null)
-                participantsTableModel.addRow(new Object[] { u.getId(), u.getName() });
+                rows.add(new Object[] { u.getId(), u.getName() });
         });
         session.getStudentIds().forEach(sId -> {
             User u = UserStorage.getUserById(sId);
-            if (u != null)
-                participantsTableModel.addRow(new Object[] { u.getId(), u.getName() });
+            if (u != null && !removed.contains(sId))
+                rows.add(new Object[] { u.getId(), u.getName() });
         });
+        joined.forEach(id -> {
+            User u = UserStorage.getUserById(id);
+            if (u != null && !removed.contains(id))
+                rows.add(new Object[] { u.getId(), u.getName() });
+        });
+        return rows;
+    }
+
+    private void showParticipants(List<Object[]> rows) {
+        participantsTableModel.setRowCount(0);
+        rows.forEach(participantsTableModel::addRow);
     }
 
     private void sendMessage() {
@@ -144,11 +309,19 @@ public class SessionRoom extends JDialog implements SessionObserver {
         if (content.isEmpty())
             return;
 
-        Message msg = new Message(currentUser.getId(), currentUser.getName(), content);
-        session.addMessage(msg);
-        saveSession();
         messageField.setText("");
-        loadMessages();
+        SessionClient sender = client;
+        String sessionId = session.getId();
+        AsyncDataAccess.io().execute(() -> {
+            // The server journals the message and sends it back to everyone.
+            if (sender != null
+                    && sender.sendMessage(sessionId, currentUser.getId(), currentUser.getName(), content)) {
+                return;
+            }
+            // No server, or it just went away: journal the message ourselves;
+            // the watcher then shows it.
+            ChatJournal.append(sessionId, new Message(currentUser.getId(), currentUser.getName(), content));
+        });
     }
 
     private void removeSelectedStudent() {
@@ -158,23 +331,64 @@ public class SessionRoom extends JDialog implements SessionObserver {
 
         String id = (String) participantsTableModel.getValueAt(row, 0);
         if (session.getStudentIds().contains(id)) {
-            session.removeStudent(id);
-            saveSession();
-            loadParticipants();
+            saveRemoval(id);
+        } else if (joinedIds.contains(id) && client != null) {
+            // Only present through the server; nothing to save.
+            client.removeParticipant(session.getId(), id);
         }
     }
 
-    private void saveSession() {
-        ArrayList<Session> sessions = SerializationUtil.readFromFile("sessions.txt");
-        sessions.replaceAll(s -> s.getId().equals(session.getId()) ? session : s);
-        SerializationUtil.saveDataToDisk(sessions, "sessions.txt");
+    // Removes the student from the stored session, then shows the session as
+    // stored and tells the other participants.
+    private void saveRemoval(String studentId) {
+        String sessionId = session.getId();
+        AsyncDataAccess.supplyToEdt(() -> VersionedStore.update("sessions.txt", sessionId, (Session s) -> {
+            if (!s.getStudentIds().contains(studentId)) {
+                return false;
+            }
+            s.removeStudent(studentId);
+            return true;
+        }), result -> {
+            if (!isDisplayable()) {
+                return;
+            }
+            if (result.getEntities() != null) {
+                for (Session s : result.getEntities()) {
+                    if (s.getId().equals(sessionId)) {
+                        session = s;
+                        break;
+                    }
+                }
+                loadParticipants();
+            }
+            switch (result.getOutcome()) {
+                case UPDATED:
+                case UNCHANGED:
+                    if (client != null) {
+                        client.removeParticipant(sessionId, studentId);
+                    }
+                    break;
+                case NOT_FOUND:
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(thisDialog(), "Could not remove the student. Please try again.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     @Override
     public void dispose() {
         super.dispose();
-        if (refreshTimer != null)
-            refreshTimer.cancel();
+        if (sessionsSubscription != null)
+            sessionsSubscription.cancel();
+        if (chatSubscription != null)
+            chatSubscription.cancel();
+        if (client != null) {
+            client.leave(session.getId(), currentUser.getId());
+            client.close();
+            client = null;
+        }
     }
 
     // SessionObserver method: show a pop-up notification on top of the session
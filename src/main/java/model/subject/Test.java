@@ -3,7 +3,9 @@ package model.subject;
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class Test implements Serializable {
+import utils.tx.Versioned;
+
+public class Test implements Serializable, Versioned {
     private static final long serialVersionUID = 1L;
     private String id;
     private String chapterId;
@@ -12,6 +14,9 @@ public class Test implements Serializable {
     private int duration; // in minutes
     private ArrayList<Question> questions;
     private ArrayList<TestResult> testResults; // To store exam results
+    private transient QuestionDictionary questionDictionary;
+    // Incremented by each update made through VersionedStore.
+    private long version;
 
     public Test(String id, String chapterId, String title, String startTime, int duration) {
         this.id = id;
@@ -31,6 +36,8 @@ public class Test implements Serializable {
         this.duration = other.duration;
         this.questions = new ArrayList<>(other.questions); // shallow copy (assumes Question is not edited here)
         this.testResults = new ArrayList<>(other.testResults);
+        this.questionDictionary = other.questionDictionary;
+        this.version = other.version;
     }
 
     public Test copy() {
@@ -78,6 +85,22 @@ public class Test implements Serializable {
         return testResults;
     }
 
+    /**
+     * Returns the dictionary of this test's question IDs, which packed test
+     * results index their answers by. The same instance is returned for as long
+     * as the questions do not change.
+     *
+     * @return The question dictionary.
+     */
+    public QuestionDictionary getQuestionDictionary() {
+        QuestionDictionary dictionary = questionDictionary;
+        if (dictionary == null || !dictionary.matches(questions)) {
+            dictionary = QuestionDictionary.of(questions);
+            questionDictionary = dictionary;
+        }
+        return dictionary;
+    }
+
     public void addQuestion(Question question) {
         questions.add(question);
     }
@@ -98,4 +121,14 @@ public class Test implements Serializable {
     public String toString() {
         return title;
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -1,7 +1,12 @@
 package model.subject;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 public class TestResult implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -11,6 +16,14 @@ public class TestResult implements Serializable {
     private Map<String, Integer> answers; // Map<QuestionID, SelectedOption>
     private double score;
     private String submissionTime;
+    // Packed form of the answers: one byte per question of the dictionary,
+    // 0 for unanswered, otherwise the selected option + 1. When set, answers is
+    // null and getAnswers() returns a read-only view over the bytes.
+    private QuestionDictionary questionDictionary;
+    private byte[] packedAnswers;
+
+    // Largest option index that fits in a packed answer byte.
+    private static final int MAX_PACKED_OPTION = 254;
 
     public TestResult(String testId, String studentId, Map<String, Integer> answers, double score,
             String submissionTime) {
@@ -21,6 +34,88 @@ public class TestResult implements Serializable {
         this.submissionTime = submissionTime;
     }
 
+    /**
+     * Creates a result with packed answers.
+     *
+     * @param testId             The test ID.
+     * @param studentId          The student ID.
+     * @param questionDictionary The test's question dictionary.
+     * @param packedAnswers      One byte per question: 0 for unanswered,
+     *                           otherwise the selected option + 1.
+     * @param score              The score.
+     * @param submissionTime     The submission time.
+     */
+    public TestResult(String testId, String studentId, QuestionDictionary questionDictionary, byte[] packedAnswers,
+            double score, String submissionTime) {
+        if (packedAnswers.length != questionDictionary.size()) {
+            throw new IllegalArgumentException("Expected " + questionDictionary.size() + " packed answers, got "
+                    + packedAnswers.length);
+        }
+        this.testId = testId;
+        this.studentId = studentId;
+        this.questionDictionary = questionDictionary;
+        this.packedAnswers = packedAnswers;
+        this.score = score;
+        this.submissionTime = submissionTime;
+    }
+
+    /**
+     * Switches the answers to the packed form against the given dictionary, if
+     * every answer refers to one of its questions with an option from 0 to 254.
+     * Otherwise the answers are left as they are.
+     *
+     * @param dictionary The question dictionary of the result's test.
+     * @return True if the answers are now packed against the dictionary.
+     */
+    public boolean packAnswers(QuestionDictionary dictionary) {
+        if (packedAnswers != null) {
+            if (questionDictionary.sameIds(dictionary)) {
+                questionDictionary = dictionary;
+                return true;
+            }
+            return false;
+        }
+        if (answers == null) {
+            return false;
+        }
+        byte[] packed = new byte[dictionary.size()];
+        for (Map.Entry<String, Integer> answer : answers.entrySet()) {
+            int position = dictionary.positionOf(answer.getKey());
+            Integer option = answer.getValue();
+            if (position < 0 || option == null || option < 0 || option > MAX_PACKED_OPTION) {
+                return false;
+            }
+            packed[position] = (byte) (option + 1);
+        }
+        questionDictionary = dictionary;
+        packedAnswers = packed;
+        answers = null;
+        return true;
+    }
+
+    /**
+     * @return True if the answers are stored packed.
+     */
+    public boolean isPacked() {
+        return packedAnswers != null;
+    }
+
+    /**
+     * @return The dictionary the packed answers refer to, or null if the
+     *         answers are not packed.
+     */
+    public QuestionDictionary getQuestionDictionary() {
+        return questionDictionary;
+    }
+
+    /**
+     * @return The packed answers (not a copy), or null if the answers are not
+     *         packed.
+     */
+    public byte[] getPackedAnswers() {
+        return packedAnswers;
+    }
+
     // Getters and Setters
     public String getTestId() {
         return testId;
@@ -30,7 +125,14 @@ public class TestResult implements Serializable {
         return studentId;
     }
 
+    /**
+     * @return The answers by question ID. For packed results this is a
+     *         read-only view over the packed answers.
+     */
     public Map<String, Integer> getAnswers() {
+        if (packedAnswers != null) {
+            return new PackedAnswers(questionDictionary, packedAnswers);
+        }
         return answers;
     }
 
@@ -52,6 +154,8 @@ public class TestResult implements Serializable {
 
     public void setAnswers(Map<String, Integer> answers) {
         this.answers = answers;
+        this.questionDictionary = null;
+        this.packedAnswers = null;
     }
 
     public void setScore(double score) {
@@ -71,4 +175,77 @@ public class TestResult implements Serializable {
                 ", submissionTime='" + submissionTime + '\'' +
                 '}';
     }
+
+    /**
+     * Map view of packed answers, for code written against the map-based API.
+     */
+    private static class PackedAnswers extends AbstractMap<String, Integer> {
+        private final QuestionDictionary dictionary;
+        private final byte[] packed;
+
+        PackedAnswers(QuestionDictionary dictionary, byte[] packed) {
+            this.dictionary = dictionary;
+            this.packed = packed;
+        }
+
+        @Override
+        public Integer get(Object questionId) {
+            int position = dictionary.positionOf(questionId);
+            if (position < 0 || packed[position] == 0) {
+                return null;
+            }
+            return (packed[position] & 0xFF) - 1;
+        }
+
+        @Override
+        public boolean containsKey(Object questionId) {
+            return get(questionId) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<Map.Entry<String, Integer>>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < packed.length && packed[from] == 0) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < packed.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int position = next;
+                            next = advance(position + 1);
+                            return new SimpleImmutableEntry<>(dictionary.getQuestionId(position),
+                                    (packed[position] & 0xFF) - 1);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (byte answer : packed) {
+                        if (answer != 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            };
+        }
+    }
 }
@@ -16,6 +16,12 @@ public class Notification implements Serializable {
         this.timestamp = LocalDateTime.now();
     }
 
+    public Notification(String message, String sessionId, LocalDateTime timestamp) {
+        this.message = message;
+        this.sessionId = sessionId;
+        this.timestamp = timestamp;
+    }
+
     // Getters
     public String getMessage() {
         return message;
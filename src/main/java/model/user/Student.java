@@ -1,9 +1,12 @@
 package model.user;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import model.subject.TestResult;
+import utils.MemberList;
 
 public class Student extends User implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -15,7 +18,7 @@ public class Student extends User implements Serializable {
     public Student(String id, String name, String password, double balance) {
         super(id, name, password);
         this.balance = balance;
-        this.groupIds = new ArrayList<>();
+        this.groupIds = new MemberList();
         this.notifications = new ArrayList<>();
         this.testResults = new ArrayList<>();
     }
@@ -71,4 +74,10 @@ public class Student extends User implements Serializable {
     public String getRole() {
         return "Student";
     }
+
+    // Files saved before member lists existed hold a plain list.
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        groupIds = MemberList.of(groupIds);
+    }
 }
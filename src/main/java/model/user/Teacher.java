@@ -6,6 +6,7 @@ import utils.IDGenerator;
 import utils.observer.SessionObserver;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 public class Teacher extends User implements Serializable, SessionObserver {
     private static final long serialVersionUID = 1L;
@@ -45,6 +46,8 @@ public class Teacher extends User implements Serializable, SessionObserver {
     @Override
     public void update(Session session, String message) {
         System.out.println("Notification for Teacher " + getName() + ": " + message);
-        JOptionPane.showMessageDialog(null, "Session Notification: " + message);
+        // Called on the session event thread; show the dialog on the EDT.
+        SwingUtilities.invokeLater(
+                () -> JOptionPane.showMessageDialog(null, "Session Notification: " + message));
     }
 }
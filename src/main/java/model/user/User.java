@@ -2,11 +2,15 @@ package model.user;
 
 import java.io.Serializable;
 
-public abstract class User implements Serializable {
+import utils.tx.Versioned;
+
+public abstract class User implements Serializable, Versioned {
     private static final long serialVersionUID = 1L;
     private String id;
     private String name;
     private String password;
+    // Incremented by each update made through VersionedStore.
+    private long version;
 
     public User(String id, String name, String password) {
         this.id = id;
@@ -27,4 +31,14 @@ public abstract class User implements Serializable {
     }
 
     public abstract String getRole();
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -1,16 +1,25 @@
 package model.user;
 
 import utils.SerializationUtil;
+import utils.tx.TransactionManager;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class UserStorage implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String FILE_PATH = "users.txt";
     private static ArrayList<User> users = loadUsers();
 
+    // Hash indexes over the users list, rebuilt only when the list changes.
+    private static final Map<String, User> usersById = new HashMap<>();
+    private static final Map<String, List<User>> usersByName = new HashMap<>();
+    private static ArrayList<User> indexedUsers;
+    private static int indexedSize = -1;
+
     /**
      * Loads users from the serialized file.
      *
@@ -26,13 +35,60 @@ public class UserStorage implements Serializable {
     }
 
     /**
-     * Adds a new user and saves the updated list to disk.
+     * Re-reads the users file if it changed on disk (an unchanged file is served
+     * from the entity cache) and rebuilds the indexes if the list changed.
+     */
+    private static void refresh() {
+        ArrayList<User> latestUsers = SerializationUtil.readFromFile(FILE_PATH);
+        if (latestUsers != null) {
+            users = latestUsers;
+        }
+        if (users != indexedUsers || users.size() != indexedSize) {
+            rebuildIndexes();
+        }
+    }
+
+    private static void rebuildIndexes() {
+        usersById.clear();
+        usersByName.clear();
+        for (User user : users) {
+            index(user);
+        }
+        indexedUsers = users;
+        indexedSize = users.size();
+    }
+
+    private static void index(User user) {
+        usersById.putIfAbsent(user.getId(), user);
+        usersByName.computeIfAbsent(nameKey(user.getName()), k -> new ArrayList<>(1)).add(user);
+    }
+
+    // Folds case character by character, as String.equalsIgnoreCase does, so
+    // that two names have the same key exactly when they are equal ignoring
+    // case, also for letters like the dotless i, which lower-casing alone
+    // would tell apart from I.
+    private static String nameKey(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        name.codePoints().forEach(c -> key.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c))));
+        return key.toString();
+    }
+
+    /**
+     * Adds a new user and saves the updated list to disk. The list is re-read
+     * and saved under the file's transaction lock, so users added or updated
+     * by other clients in the meantime are kept.
      *
      * @param user The user to add.
      */
-    public static void addUser(User user) {
-        users.add(user);
-        saveUsers();
+    public static synchronized void addUser(User user) {
+        TransactionManager.getInstance().runExclusive(FILE_PATH, () -> {
+            refresh();
+            users.add(user);
+            index(user);
+            indexedSize = users.size();
+            saveUsers();
+            return null;
+        });
     }
 
     /**
@@ -49,11 +105,39 @@ public class UserStorage implements Serializable {
      * @param password The user's password.
      * @return The matching user or null if not found.
      */
-    public static User findUserByNameAndPassword(String name, String password) {
-        return users.stream()
-                .filter(user -> user.getName().equals(name) && user.getPassword().equals(password))
-                .findFirst()
-                .orElse(null);
+    public static synchronized User findUserByNameAndPassword(String name, String password) {
+        refresh();
+        List<User> candidates = usersByName.get(nameKey(name));
+        if (candidates == null) {
+            return null;
+        }
+        for (User user : candidates) {
+            if (user.getName().equals(name) && user.getPassword().equals(password)) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a user with the given name exists, ignoring case.
+     *
+     * @param name The name to look up.
+     * @return True if the name is already taken.
+     */
+    public static synchronized boolean isNameTaken(String name) {
+        refresh();
+        String key = nameKey(name);
+        List<User> candidates = usersByName.get(key);
+        if (candidates == null) {
+            return false;
+        }
+        for (User user : candidates) {
+            if (nameKey(user.getName()).equals(key)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -61,7 +145,7 @@ public class UserStorage implements Serializable {
      *
      * @return A list of all users.
      */
-    public static ArrayList<User> getUsers() {
+    public static synchronized ArrayList<User> getUsers() {
         return users;
     }
 
@@ -70,20 +154,22 @@ public class UserStorage implements Serializable {
      *
      * @param updatedUsers The updated list of users.
      */
-    public static void updateUsers(ArrayList<User> updatedUsers) {
+    public static synchronized void updateUsers(ArrayList<User> updatedUsers) {
         users = updatedUsers;
         saveUsers();
+        rebuildIndexes();
     }
 
-    public static User getUserById(String id) {
-        ArrayList<User> latestUsers = SerializationUtil.readFromFile(FILE_PATH);
-        if (latestUsers != null) {
-            users = latestUsers;
-        }
-        return users.stream()
-                .filter(user -> user.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+    /**
+     * Finds a user by ID, picking up changes made to the users file by other
+     * clients.
+     *
+     * @param id The user's ID.
+     * @return The matching user or null if not found.
+     */
+    public static synchronized User getUserById(String id) {
+        refresh();
+        return usersById.get(id);
     }
 
 }
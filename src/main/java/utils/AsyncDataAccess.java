@@ -0,0 +1,134 @@
+package utils;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous access to the data files, so that windows never read or
+ * deserialize a file on the Swing event dispatch thread. Loads run on a
+ * background I/O thread and produce read-only snapshots; the window then
+ * applies the finished snapshot on the EDT, e.g.
+ *
+ * <pre>
+ * AsyncDataAccess.loadList("sessions.txt")
+ *         .thenAcceptAsync(snapshot -&gt; showSessions(snapshot), AsyncDataAccess.edt());
+ * </pre>
+ *
+ * There is a single I/O thread, so loads complete, and are delivered to the
+ * EDT, in the order they were requested.
+ */
+public class AsyncDataAccess {
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Executor EDT = SwingUtilities::invokeLater;
+
+    private AsyncDataAccess() {
+    }
+
+    /**
+     * Loads a list of entities from a data file.
+     *
+     * @param <T>      The entity type.
+     * @param filePath The data file.
+     * @return A future for a read-only copy of the list; empty if the file does
+     *         not exist or cannot be read.
+     */
+    public static <T> CompletableFuture<List<T>> loadList(String filePath) {
+        return CompletableFuture.supplyAsync(() -> snapshotOf(filePath), IO);
+    }
+
+    /**
+     * Runs other blocking work, such as reading a log, on the I/O thread.
+     *
+     * @param <T>    The result type.
+     * @param loader The work to run.
+     * @return A future for its result.
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> loader) {
+        return CompletableFuture.supplyAsync(loader, IO);
+    }
+
+    /**
+     * Runs blocking work on the I/O thread and passes its result to a consumer
+     * on the EDT. Failures are reported instead of being lost in the future.
+     *
+     * @param <T>      The result type.
+     * @param loader   The work to run.
+     * @param consumer Applies the result on the EDT.
+     * @return A future completed once the consumer has run.
+     */
+    public static <T> CompletableFuture<Void> supplyToEdt(Supplier<T> loader, Consumer<T> consumer) {
+        return supply(loader).thenAcceptAsync(consumer, EDT).exceptionally(e -> {
+            System.err.println("Error loading data: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * Saves an object like {@link SerializationUtil#saveDataToDiskAsync},
+     * without blocking the calling thread, typically the EDT, and passes
+     * whether the save succeeded to a consumer on the EDT. The object is
+     * encoded before this method returns, so it may be changed afterwards.
+     *
+     * @param <T>      The type of the object.
+     * @param obj      The object to save.
+     * @param filePath The data file.
+     * @param consumer Receives whether the save succeeded, on the EDT.
+     * @return A future completed once the consumer has run.
+     */
+    public static <T extends Serializable> CompletableFuture<Void> save(T obj, String filePath,
+            Consumer<Boolean> consumer) {
+        return SerializationUtil.saveDataToDiskAsync(obj, filePath).thenAcceptAsync(consumer, EDT);
+    }
+
+    /**
+     * @return An executor that runs tasks on the Swing EDT.
+     */
+    public static Executor edt() {
+        return EDT;
+    }
+
+    /**
+     * @return The executor for blocking data access.
+     */
+    public static Executor io() {
+        return IO;
+    }
+
+    // Decodes the file on its own rather than copying the cached list: the
+    // cached entities are shared with windows that edit them on the EDT, so
+    // a copy of the list would still share them.
+    private static <T> List<T> snapshotOf(String filePath) {
+        if (!new File(filePath).exists()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(readUncached(filePath));
+    }
+
+    private static <T> List<T> readUncached(String filePath) {
+        try {
+            ArrayList<T> list = SerializationUtil.fromBytes(Files.readAllBytes(new File(filePath).toPath()));
+            return (list != null) ? list : new ArrayList<>();
+        } catch (IOException e) {
+            System.err.println("Error reading from " + filePath + ": " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+}
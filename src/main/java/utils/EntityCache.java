@@ -0,0 +1,141 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of deserialized data files, keyed by file path. Each entry
+ * remembers the version stamp (modification time, size and file key) of the file
+ * it was read from, so a repeated read of an unchanged file returns the cached
+ * object graph without touching its contents.
+ *
+ * Cached graphs are shared between all readers in the process. Code that
+ * modifies a graph obtained from the cache is expected to save it back with
+ * {@link SerializationUtil#saveDataToDisk}, as the dashboards already do.
+ */
+public class EntityCache {
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static class Entry {
+        private final Stamp stamp;
+        private final Object value;
+
+        Entry(Stamp stamp, Object value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Version stamp of a file on disk.
+     */
+    public static final class Stamp {
+        private final long lastModifiedNanos;
+        private final long size;
+        private final Object fileKey;
+
+        private Stamp(long lastModifiedNanos, long size, Object fileKey) {
+            this.lastModifiedNanos = lastModifiedNanos;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            Stamp other = (Stamp) o;
+            return lastModifiedNanos == other.lastModifiedNanos && size == other.size
+                    && Objects.equals(fileKey, other.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModifiedNanos, size, fileKey);
+        }
+    }
+
+    /**
+     * Reads the current version stamp of a file.
+     *
+     * @param file The file to inspect.
+     * @return The stamp, or null if the file does not exist or cannot be read.
+     */
+    public static Stamp stampOf(File file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new Stamp(attrs.lastModifiedTime().to(java.util.concurrent.TimeUnit.NANOSECONDS),
+                    attrs.size(), attrs.fileKey());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached object for a file if it was read at the given stamp.
+     * Updates the hit/miss counters.
+     *
+     * @param <T>      The type of the cached object.
+     * @param filePath The file path.
+     * @param stamp    The file's current stamp.
+     * @return The cached object, or null on a miss.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String filePath, Stamp stamp) {
+        Entry entry = entries.get(key(filePath));
+        if (entry != null && stamp != null && entry.stamp.equals(stamp)) {
+            hits.incrementAndGet();
+            return (T) entry.value;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the object read from (or just written to) a file at the given stamp.
+     */
+    public static void put(String filePath, Stamp stamp, Object value) {
+        if (stamp == null || value == null) {
+            invalidate(filePath);
+            return;
+        }
+        entries.put(key(filePath), new Entry(stamp, value));
+    }
+
+    /**
+     * Drops the cached object for a file, forcing the next read to go to disk.
+     */
+    public static void invalidate(String filePath) {
+        entries.remove(key(filePath));
+    }
+
+    /**
+     * Drops every cached object and resets the counters.
+     */
+    public static void clear() {
+        entries.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    private static String key(String filePath) {
+        return new File(filePath).getAbsoluteFile().toPath().normalize().toString();
+    }
+}
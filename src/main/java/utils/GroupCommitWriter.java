@@ -0,0 +1,318 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crash-safe writer for whole data files. Each file is written to a temporary
+ * file next to it, forced to disk and then renamed over the target in one
+ * atomic step, so a crash leaves either the old or the new contents, never a
+ * torn file.
+ *
+ * Writes are performed by a single background thread in group commits: saves
+ * submitted within {@value #DEFAULT_WINDOW_MILLIS} ms of each other are written
+ * together, with one directory sync for the whole commit, and a file saved
+ * several times in the window is written only once, with its latest contents.
+ * Statistics about the commits are available through {@link #getStats()}.
+ */
+public class GroupCommitWriter {
+    public static final long DEFAULT_WINDOW_MILLIS = 5;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static GroupCommitWriter instance;
+
+    private final long windowMillis;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Stats stats = new Stats();
+    private final Thread writer;
+
+    private static class Request {
+        private final Path path;
+        private final byte[] bytes;
+        private final long submittedNanos = System.nanoTime();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Request(Path path, byte[] bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Commit statistics. Latencies are measured from the submission of the
+     * oldest save in a commit until the commit is on disk.
+     */
+    public static class Stats {
+        private long commits;
+        private long requests;
+        private long filesWritten;
+        private long bytesWritten;
+        private long totalLatencyNanos;
+        private long maxLatencyNanos;
+        private long lastLatencyNanos;
+        private int lastCommitFiles;
+
+        private synchronized void record(int commitRequests, int files, long bytes, long latencyNanos) {
+            commits++;
+            requests += commitRequests;
+            filesWritten += files;
+            bytesWritten += bytes;
+            totalLatencyNanos += latencyNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+            lastLatencyNanos = latencyNanos;
+            lastCommitFiles = files;
+        }
+
+        private synchronized Stats copy() {
+            Stats copy = new Stats();
+            copy.commits = commits;
+            copy.requests = requests;
+            copy.filesWritten = filesWritten;
+            copy.bytesWritten = bytesWritten;
+            copy.totalLatencyNanos = totalLatencyNanos;
+            copy.maxLatencyNanos = maxLatencyNanos;
+            copy.lastLatencyNanos = lastLatencyNanos;
+            copy.lastCommitFiles = lastCommitFiles;
+            return copy;
+        }
+
+        public long getCommits() {
+            return commits;
+        }
+
+        /**
+         * @return The number of saves submitted, including those merged into a
+         *         later save of the same file.
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getFilesWritten() {
+            return filesWritten;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public double getAverageLatencyMillis() {
+            return (commits == 0) ? 0 : totalLatencyNanos / 1e6 / commits;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyNanos / 1e6;
+        }
+
+        public double getLastLatencyMillis() {
+            return lastLatencyNanos / 1e6;
+        }
+
+        public int getLastCommitFiles() {
+            return lastCommitFiles;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d commits, %d saves, %d files, %d bytes; latency avg %.2f ms, max %.2f ms, last %.2f ms",
+                    commits, requests, filesWritten, bytesWritten, getAverageLatencyMillis(), getMaxLatencyMillis(),
+                    getLastLatencyMillis());
+        }
+    }
+
+    /**
+     * @param windowMillis How long to collect further saves after the first one
+     *                     before committing them.
+     */
+    public GroupCommitWriter(long windowMillis) {
+        this.windowMillis = windowMillis;
+        writer = new Thread(this::writeLoop, "group-commit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return The writer used by {@link SerializationUtil}.
+     */
+    public static synchronized GroupCommitWriter getInstance() {
+        if (instance == null) {
+            instance = new GroupCommitWriter(DEFAULT_WINDOW_MILLIS);
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a file for the next commit.
+     *
+     * @param filePath The file to replace.
+     * @param bytes    Its new contents; not copied, so must not be modified.
+     * @return A future completed when the file is on disk, or completed
+     *         exceptionally with the {@link IOException} if the write failed.
+     */
+    public CompletableFuture<Void> submit(String filePath, byte[] bytes) {
+        Request request = new Request(Paths.get(filePath).toAbsolutePath().normalize(), bytes);
+        if (Thread.currentThread() == writer) {
+            // A save from a completion callback: write it now rather than wait
+            // for a commit this thread would have to run.
+            commit(List.of(request));
+            return request.done;
+        }
+        queue.add(request);
+        return request.done;
+    }
+
+    /**
+     * Writes a file and waits until it is on disk.
+     *
+     * @param filePath The file to replace.
+     * @param bytes    Its new contents.
+     */
+    public void write(String filePath, byte[] bytes) throws IOException {
+        try {
+            submit(filePath, bytes).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return A copy of the commit statistics so far.
+     */
+    public Stats getStats() {
+        return stats.copy();
+    }
+
+    private void writeLoop() {
+        List<Request> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch);
+                commit(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Error in group commit: " + e.getMessage());
+                e.printStackTrace();
+                for (Request request : batch) {
+                    request.done.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Request> batch) {
+        // Only the latest save of each file is written; earlier ones complete
+        // with it.
+        Map<Path, List<Request>> byPath = new LinkedHashMap<>();
+        for (Request request : batch) {
+            byPath.computeIfAbsent(request.path, p -> new ArrayList<>()).add(request);
+        }
+        long bytes = 0;
+        Set<Path> directories = new LinkedHashSet<>();
+        Map<Path, IOException> failures = new LinkedHashMap<>();
+        for (Map.Entry<Path, List<Request>> entry : byPath.entrySet()) {
+            List<Request> requests = entry.getValue();
+            byte[] latest = requests.get(requests.size() - 1).bytes;
+            try {
+                writeAtomically(entry.getKey(), latest);
+                bytes += latest.length;
+                directories.add(entry.getKey().getParent());
+            } catch (IOException e) {
+                failures.put(entry.getKey(), e);
+            }
+        }
+        for (Path directory : directories) {
+            syncDirectory(directory);
+        }
+        long latency = System.nanoTime() - batch.get(0).submittedNanos;
+        stats.record(batch.size(), byPath.size() - failures.size(), bytes, latency);
+        for (Map.Entry<Path, List<Request>> entry : byPath.entrySet()) {
+            IOException failure = failures.get(entry.getKey());
+            for (Request request : entry.getValue()) {
+                if (failure != null) {
+                    request.done.completeExceptionally(failure);
+                } else {
+                    request.done.complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces a file's contents via a forced temporary file and an atomic
+     * rename, without waiting for a group commit. The directory entry is not
+     * synced.
+     *
+     * @param path  The file to replace.
+     * @param bytes Its new contents.
+     */
+    public static void writeAtomically(Path path, byte[] bytes) throws IOException {
+        // A unique name per write, so concurrent writers of the same file
+        // (other processes, or a direct call next to the writer thread) never
+        // rename each other's half-written file into place.
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(),
+                TEMP_SUFFIX);
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        // Makes the renames durable. Not supported on every platform (e.g.
+        // Windows), where the rename is left to the file system.
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync unsupported.
+        }
+    }
+}
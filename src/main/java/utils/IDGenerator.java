@@ -4,14 +4,194 @@
  */
 package utils;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * Generates time-ordered 64-bit IDs (Snowflake layout) and their compact
+ * string form.
+ *
+ * An ID holds 41 bits of milliseconds since {@link #EPOCH_MILLIS}, a 10-bit
+ * node ID that keeps instances sharing a data directory apart, and a 12-bit
+ * sequence for IDs created in the same millisecond. IDs from one node strictly
+ * increase, also if the clock goes back. The string form is 13 characters of
+ * Crockford base32 and sorts in the same order as the numbers, so IDs sort by
+ * creation time.
+ *
+ * Each running process claims its node ID by locking a file in the
+ * {@value #NODE_DIRECTORY} directory of the data directory, and holds the lock
+ * until it exits, so no two processes sharing the data directory use the same
+ * node. The node ID can be chosen with the {@value #NODE_PROPERTY} system
+ * property; otherwise the first free one is taken, starting at a random one.
+ * Class initialization fails if the chosen node is in use or no node can be
+ * claimed.
  *
  * @author jouma
  */
-import java.util.UUID;
-
 public class IDGenerator {
+    public static final String NODE_PROPERTY = "school.node.id";
+    public static final String NODE_DIRECTORY = "nodes";
+    // 2024-01-01T00:00:00Z; the 41-bit timestamp lasts until 2093.
+    public static final long EPOCH_MILLIS = 1704067200000L;
+    public static final int ID_LENGTH = 13;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    // Held until the process exits; the lock is the claim on the node ID.
+    private static FileLock nodeLock;
+    private static final long node = claimNode();
+    // Timestamp and sequence of the last ID, as (millis << SEQUENCE_BITS) | sequence.
+    private static final AtomicLong last = new AtomicLong();
+
+    /**
+     * @return A new ID in its 13-character string form.
+     */
     public static String generateID() {
-        return UUID.randomUUID().toString();
+        return toString(nextId());
+    }
+
+    /**
+     * @return A new ID, greater than every ID this node generated before.
+     */
+    public static long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            // A full sequence carries into the next millisecond, and a clock
+            // that went back keeps counting from the last ID.
+            next = Math.max(now << SEQUENCE_BITS, previous + 1);
+        } while (!last.compareAndSet(previous, next));
+        long millis = next >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * @param id An ID.
+     * @return Its 13-character Crockford base32 form.
+     */
+    public static String toString(long id) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param text An ID in the form returned by {@link #toString(long)}.
+     * @return The ID.
+     * @throws IllegalArgumentException If the text is not such an ID, e.g. an
+     *                                  older UUID.
+     */
+    public static long parse(String text) {
+        if (text == null || text.length() != ID_LENGTH) {
+            throw new IllegalArgumentException("Not a generated ID: " + text);
+        }
+        long id = 0;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int digit = digitOf(text.charAt(i));
+            if (digit < 0 || (i == 0 && digit > 15)) {
+                throw new IllegalArgumentException("Not a generated ID: " + text);
+            }
+            id = (id << 5) | digit;
+        }
+        return id;
+    }
+
+    /**
+     * @param id An ID.
+     * @return The time it was generated, in milliseconds since 1970.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /**
+     * @param id An ID.
+     * @return The node that generated it.
+     */
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+    }
+
+    /**
+     * @return This process's node ID.
+     */
+    public static int getNode() {
+        return (int) node;
+    }
+
+    private static int digitOf(char c) {
+        c = Character.toUpperCase(c);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long claimNode() {
+        Integer configured = Integer.getInteger(NODE_PROPERTY);
+        if (configured != null) {
+            if (configured < 0 || configured > MAX_NODE) {
+                throw new IllegalStateException(NODE_PROPERTY + " must be between 0 and " + MAX_NODE);
+            }
+            if (!tryClaim(configured)) {
+                throw new IllegalStateException("Node " + configured + " (" + NODE_PROPERTY
+                        + ") is in use by another process");
+            }
+            return configured;
+        }
+        long start = ThreadLocalRandom.current().nextLong(MAX_NODE + 1);
+        for (long i = 0; i <= MAX_NODE; i++) {
+            long candidate = (start + i) & MAX_NODE;
+            if (tryClaim(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("All " + (MAX_NODE + 1) + " node IDs are in use; set " + NODE_PROPERTY);
+    }
+
+    private static boolean tryClaim(long candidate) {
+        Path file = Paths.get(NODE_DIRECTORY, "node-" + candidate + ".lock");
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                channel.close();
+                return false;
+            }
+            nodeLock = lock;
+            return true;
+        } catch (IOException e) {
+            // Without the lock another process could generate the same IDs.
+            throw new IllegalStateException("Could not claim node " + candidate + " in " + NODE_DIRECTORY + ": "
+                    + e.getMessage(), e);
+        } finally {
+            if (nodeLock == null && channel != null && channel.isOpen()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Nothing was locked.
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary from entity ID strings to dense int keys (0, 1, 2,
+ * ...), for in-memory indexes and joins: grouping and membership checks work
+ * on ints, and every copy of an ID read from the data files can share one
+ * String instance via {@link #intern(String)}. The data files and public APIs
+ * keep using the strings.
+ *
+ * Keys are assigned on first use and never reused, so they are only valid
+ * within one run of the application and must not be persisted.
+ */
+public final class IdDictionary {
+    private static final Map<String, Integer> keys = new ConcurrentHashMap<>();
+    // ids[key] is the ID of each assigned key; replaced when it grows.
+    private static volatile String[] ids = new String[1024];
+    private static int size;
+
+    private IdDictionary() {
+    }
+
+    /**
+     * Returns the key of an ID, assigning the next free key if the ID has none
+     * yet.
+     *
+     * @param id The ID.
+     * @return Its key.
+     */
+    public static int keyOf(String id) {
+        Integer key = keys.get(id);
+        return (key != null) ? key : assign(id);
+    }
+
+    /**
+     * Returns the key of an ID without assigning one, for lookups that should
+     * not grow the dictionary.
+     *
+     * @param id The ID, or null.
+     * @return Its key, or -1 if it has none.
+     */
+    public static int lookup(String id) {
+        if (id == null) {
+            return -1;
+        }
+        Integer key = keys.get(id);
+        return (key != null) ? key : -1;
+    }
+
+    /**
+     * @param key A key returned by {@link #keyOf(String)}.
+     * @return The ID with that key.
+     */
+    public static String idOf(int key) {
+        String[] current = ids;
+        if (key < 0 || key >= current.length || current[key] == null) {
+            throw new IllegalArgumentException("Unknown ID key " + key);
+        }
+        return current[key];
+    }
+
+    /**
+     * @param id An ID, or null.
+     * @return The dictionary's instance of an equal ID, or null.
+     */
+    public static String intern(String id) {
+        return (id != null) ? idOf(keyOf(id)) : null;
+    }
+
+    /**
+     * Combines two keys into one, e.g. for grouping by (student, test).
+     */
+    public static long pairKey(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The number of keys assigned.
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    private static synchronized int assign(String id) {
+        Integer existing = keys.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int key = size++;
+        ids[key] = id;
+        // Published after the array slot, so a reader that finds the key also
+        // finds the ID.
+        keys.put(id, key);
+        return key;
+    }
+}
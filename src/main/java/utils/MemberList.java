@@ -0,0 +1,165 @@
+package utils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An insertion-ordered list of distinct entity IDs, e.g. the members of a
+ * group. Backed by a hash set as well as a list, so {@link #contains} and
+ * adding a member take constant time; adding an ID that is already present
+ * leaves the list unchanged. Null IDs are not allowed.
+ *
+ * Like {@link ArrayList}, it is not safe for concurrent modification.
+ */
+public class MemberList extends AbstractList<String> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<String> ids;
+    // The same IDs, for membership checks; rebuilt after deserialization.
+    private transient HashSet<String> members;
+
+    public MemberList() {
+        ids = new ArrayList<>();
+        members = new HashSet<>();
+    }
+
+    /**
+     * Creates a list of the distinct IDs of a collection, in order.
+     *
+     * @param ids The IDs.
+     */
+    public MemberList(Collection<String> ids) {
+        this.ids = new ArrayList<>(ids.size());
+        members = new HashSet<>(Math.max(16, (int) (ids.size() / 0.75f) + 1));
+        addAll(ids);
+    }
+
+    /**
+     * Returns the given list if it already is a member list, or a member list
+     * with its distinct IDs otherwise.
+     *
+     * @param ids The IDs, or null.
+     * @return The member list, or null.
+     */
+    public static MemberList of(Collection<String> ids) {
+        if (ids == null || ids instanceof MemberList) {
+            return (MemberList) ids;
+        }
+        return new MemberList(ids);
+    }
+
+    @Override
+    public String get(int index) {
+        return ids.get(index);
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return members.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return members.contains(o) ? ids.indexOf(o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    /**
+     * Appends an ID unless it is already present.
+     *
+     * @return Whether the ID was added.
+     */
+    @Override
+    public boolean add(String id) {
+        if (!members.add(Objects.requireNonNull(id))) {
+            return false;
+        }
+        ids.add(id);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Inserts an ID unless it is already present.
+     */
+    @Override
+    public void add(int index, String id) {
+        if (members.add(Objects.requireNonNull(id))) {
+            ids.add(index, id);
+            modCount++;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If the ID is present at another index.
+     */
+    @Override
+    public String set(int index, String id) {
+        String previous = ids.get(index);
+        if (previous.equals(id)) {
+            return previous;
+        }
+        if (members.contains(Objects.requireNonNull(id))) {
+            throw new IllegalArgumentException("Duplicate member " + id);
+        }
+        ids.set(index, id);
+        members.remove(previous);
+        members.add(id);
+        return previous;
+    }
+
+    @Override
+    public String remove(int index) {
+        String id = ids.remove(index);
+        members.remove(id);
+        modCount++;
+        return id;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!members.remove(o)) {
+            return false;
+        }
+        ids.remove(o);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void sort(Comparator<? super String> c) {
+        // The default sort sets elements one by one, which would briefly
+        // duplicate them.
+        ids.sort(c);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        ids.clear();
+        members.clear();
+        modCount++;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        members = new HashSet<>(ids);
+    }
+}
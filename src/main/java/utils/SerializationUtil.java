@@ -1,53 +1,155 @@
 package utils;
 
+import utils.codec.EntityCodec;
+import utils.observer.FileChangeWatcher;
+
 import java.io.*;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class SerializationUtil {
 
     /**
-     * Saves a serializable object to disk.
+     * Saves a serializable object to disk. Entities and lists of entities are
+     * written with the compact {@link EntityCodec}; anything else falls back to
+     * Java serialization. The file is replaced atomically through the
+     * {@link GroupCommitWriter}, so a crash during the save leaves the previous
+     * contents intact.
      *
      * @param <T>      The type of the object.
      * @param obj      The object to save.
      * @param filePath The file path to save the object.
      */
     public static <T extends Serializable> void saveDataToDisk(T obj, String filePath) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            oos.writeObject(obj);
-            oos.flush();
-            System.out.println("Data successfully saved to " + filePath);
+        saveDataToDiskAsync(obj, filePath).join();
+    }
+
+    /**
+     * Saves a serializable object like {@link #saveDataToDisk}, without
+     * waiting for the write. Saves issued together, e.g. of a group and of the
+     * users it refers to, are written in one group commit. The object is
+     * encoded before this method returns, so it may be modified afterwards.
+     *
+     * @param <T>      The type of the object.
+     * @param obj      The object to save.
+     * @param filePath The file path to save the object.
+     * @return A future completed with whether the save succeeded.
+     */
+    public static <T extends Serializable> CompletableFuture<Boolean> saveDataToDiskAsync(T obj, String filePath) {
+        byte[] bytes;
+        try {
+            bytes = toBytes(obj);
         } catch (IOException e) {
             System.err.println("Error saving data to " + filePath + ": " + e.getMessage());
             e.printStackTrace();
+            return CompletableFuture.completedFuture(false);
         }
+        return saveEncodedAsync(obj, bytes, filePath);
+    }
+
+    /**
+     * Saves an object that has already been encoded with {@link #toBytes}, for
+     * writers that need the bytes themselves (see {@link utils.tx.Transaction}).
+     *
+     * @param <T>      The type of the object.
+     * @param obj      The object, for callers that pass it along; it is not
+     *                 cached, since the caller may keep modifying it.
+     * @param bytes    The encoded object.
+     * @param filePath The file path to save the object.
+     * @return A future completed with whether the save succeeded.
+     */
+    public static <T extends Serializable> CompletableFuture<Boolean> saveEncodedAsync(T obj, byte[] bytes,
+            String filePath) {
+        // Until the write completes, readers see the previous file version.
+        return GroupCommitWriter.getInstance().submit(filePath, bytes).handle((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = (error instanceof CompletionException) ? error.getCause() : error;
+                System.err.println("Error saving data to " + filePath + ": " + cause.getMessage());
+                cause.printStackTrace();
+                EntityCache.invalidate(filePath);
+                return false;
+            }
+            System.out.println("Data successfully saved to " + filePath);
+            // The next read decodes the new file; caching obj itself would
+            // share the caller's live graph with every later reader.
+            EntityCache.invalidate(filePath);
+            FileChangeWatcher.fireChanged(filePath);
+            return true;
+        });
     }
 
     /**
-     * Reads a serializable object from disk.
+     * Reads a serializable object from disk. If the file has not changed since
+     * it was last read in this process, the cached object is returned without
+     * deserializing the file again (see {@link EntityCache}).
+     * Files still in the Java serialization format are migrated transparently:
+     * they are read as before and rewritten in the binary format on next save.
      *
      * @param <T>      The type of the object.
      * @param filePath The file path to read the object from.
      * @return The deserialized object, or null if an error occurred.
      */
-    @SuppressWarnings("unchecked")
     public static <T extends Serializable> T readFromFile(String filePath) {
         T obj = null;
         File file = new File(filePath);
         if (!file.exists()) {
             System.err.println("File " + filePath + " does not exist.");
+            EntityCache.invalidate(filePath);
             return null;
         }
+        EntityCache.Stamp stamp = EntityCache.stampOf(file);
+        T cached = EntityCache.get(filePath, stamp);
+        if (cached != null) {
+            return cached;
+        }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-            obj = (T) ois.readObject();
+        try {
+            obj = fromBytes(Files.readAllBytes(file.toPath()));
+            EntityCache.put(filePath, stamp, obj);
             System.out.println("Data successfully loaded from " + filePath);
         } catch (IOException e) {
             System.err.println("Error reading from " + filePath + ": " + e.getMessage());
             e.printStackTrace();
-        } catch (ClassNotFoundException e) {
-            System.err.println("Class not found while reading from " + filePath + ": " + e.getMessage());
-            e.printStackTrace();
         }
         return obj;
     }
+
+    /**
+     * Serializes an object into a byte array, for storage formats that frame
+     * their own records (such as {@link utils.log.AppendLog}).
+     *
+     * @param obj The object to serialize.
+     * @return The serialized bytes.
+     */
+    public static byte[] toBytes(Serializable obj) throws IOException {
+        if (EntityCodec.canEncode(obj)) {
+            return EntityCodec.encode(obj);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes an object previously produced by {@link #toBytes}, in either
+     * the binary codec format or the legacy Java serialization format.
+     *
+     * @param <T>   The type of the object.
+     * @param bytes The serialized bytes.
+     * @return The deserialized object.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> T fromBytes(byte[] bytes) throws IOException {
+        if (EntityCodec.isEncoded(bytes)) {
+            return (T) EntityCodec.decode(bytes);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Class not found while deserializing: " + e.getMessage(), e);
+        }
+    }
 }
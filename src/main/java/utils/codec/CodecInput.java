@@ -0,0 +1,113 @@
+package utils.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Low-level reader matching {@link CodecOutput}.
+ */
+class CodecInput {
+    private final byte[] data;
+    private final int version;
+    private int position;
+    private String[] strings = new String[0];
+
+    CodecInput(byte[] data, int offset, int version) {
+        this.data = data;
+        this.position = offset;
+        this.version = version;
+    }
+
+    /**
+     * @return The schema version the data was written with.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    int readByte() throws IOException {
+        if (position >= data.length) {
+            throw new IOException("Unexpected end of data at offset " + position);
+        }
+        return data[position++] & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint at offset " + position);
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if ((value >>> 32) != 0) {
+            throw new IOException("Varint out of int range at offset " + position);
+        }
+        return (int) value;
+    }
+
+    long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    int readSignedVarInt() throws IOException {
+        int raw = readVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    byte[] readBytes(int length) throws IOException {
+        if (length > data.length - position) {
+            throw new IOException("Byte run of " + length + " exceeds remaining data");
+        }
+        byte[] bytes = new byte[length];
+        System.arraycopy(data, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    double readDouble() throws IOException {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    String readString() throws IOException {
+        int index = readVarInt();
+        if (index == 0) {
+            return null;
+        }
+        if (index > strings.length) {
+            throw new IOException("String reference " + index + " outside table of " + strings.length);
+        }
+        return strings[index - 1];
+    }
+
+    /**
+     * @return The collection size, or -1 for a null collection.
+     */
+    int readSize() throws IOException {
+        return readVarInt() - 1;
+    }
+
+    void readStringTable() throws IOException {
+        int count = readVarInt();
+        strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = readVarInt();
+            if (length > data.length - position) {
+                throw new IOException("String length " + length + " exceeds remaining data");
+            }
+            strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package utils.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Low-level writer for the binary codec: varints, fixed-width doubles and
+ * strings interned into a per-file string table.
+ */
+class CodecOutput {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    void writeByte(int b) {
+        body.write(b);
+    }
+
+    void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            body.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        body.write((int) value);
+    }
+
+    void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeSignedVarInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    void writeBytes(byte[] bytes) {
+        body.write(bytes, 0, bytes.length);
+    }
+
+    void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            body.write((int) (bits >>> shift));
+        }
+    }
+
+    /**
+     * Writes a reference into the string table; 0 encodes null.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size() + 1;
+            strings.put(value, index);
+        }
+        writeVarInt(index);
+    }
+
+    /**
+     * Writes a collection size, or 0 for a null collection.
+     */
+    void writeSize(Object collection, int size) {
+        writeVarInt(collection == null ? 0 : size + 1);
+    }
+
+    /**
+     * Assembles the final file: header, string table and body.
+     */
+    byte[] toByteArray(byte[] magic, int schemaVersion) {
+        CodecOutput table = new CodecOutput();
+        table.writeVarInt(strings.size());
+        for (String s : strings.keySet()) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            table.writeVarInt(utf8.length);
+            table.body.write(utf8, 0, utf8.length);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(magic.length + 1 + table.body.size() + body.size());
+        out.write(magic, 0, magic.length);
+        out.write(schemaVersion);
+        out.writeBytes(table.body.toByteArray());
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,59 @@
+package utils.codec;
+
+import utils.SerializationUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+/**
+ * Rewrites the data files in the working directory from the legacy Java
+ * serialization format into the binary codec format. Files already in the new
+ * format are left untouched. Running this is optional: legacy files are also
+ * read transparently and migrated on their next save.
+ */
+public class DataMigration {
+    private static final String[] DATA_FILES = { "users.txt", "subjects.txt", "chapters.txt", "groups.txt",
+            "materials.txt", "tests.txt", "sessions.txt", "testResults.txt" };
+
+    public static void main(String[] args) {
+        String[] files = (args.length > 0) ? args : DATA_FILES;
+        for (String path : files) {
+            migrate(path);
+        }
+    }
+
+    /**
+     * Migrates a single file if it is still in the legacy format.
+     *
+     * @param path The file to migrate.
+     * @return True if the file was rewritten.
+     */
+    public static boolean migrate(String path) {
+        File file = new File(path);
+        if (!file.exists()) {
+            System.out.println("Skipping " + path + ": file does not exist.");
+            return false;
+        }
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            if (EntityCodec.isEncoded(data)) {
+                System.out.println("Skipping " + path + ": already in binary format.");
+                return false;
+            }
+            Serializable obj = SerializationUtil.fromBytes(data);
+            if (!EntityCodec.canEncode(obj)) {
+                System.out.println("Skipping " + path + ": contents not supported by the binary codec.");
+                return false;
+            }
+            SerializationUtil.saveDataToDisk(obj, path);
+            System.out.println("Migrated " + path + ": " + data.length + " -> " + file.length() + " bytes.");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error migrating " + path + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
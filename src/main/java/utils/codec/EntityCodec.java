@@ -0,0 +1,631 @@
+package utils.codec;
+
+import model.subject.Chapter;
+import model.subject.Group;
+import model.subject.Material;
+import model.subject.Message;
+import model.subject.Question;
+import model.subject.QuestionDictionary;
+import model.subject.Session;
+import model.subject.Subject;
+import model.subject.Test;
+import model.subject.TestResult;
+import model.user.Notification;
+import model.user.Student;
+import model.user.Teacher;
+import utils.IdDictionary;
+import utils.log.SubmissionSnapshot;
+import utils.tx.Versioned;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary codec for the entities in {@code model.user} and
+ * {@code model.subject}, and for lists of them.
+ *
+ * File layout: a 4-byte magic, a schema version byte, a string table (every
+ * distinct string stored once, UTF-8 with a varint length) and finally a
+ * tagged value whose strings are varint references into the table. Sizes and
+ * integers are varints; doubles are stored as their 8-byte IEEE bits.
+ *
+ * Unlike Java serialization, object identity is not preserved: an object
+ * referenced twice in the same graph is decoded as two equal copies.
+ *
+ * Version history: 1 is the initial layout; 2 adds packed test result answers
+ * (see {@link TestResult#getPackedAnswers()}); 3 adds the version number of
+ * groups, sessions, tests and users (see {@link utils.tx.Versioned}); 4 adds
+ * submission snapshots (see {@link SubmissionSnapshot}). Data in versions 1
+ * and 2 is still read, with entity versions of 0.
+ */
+public class EntityCodec {
+    static final byte[] MAGIC = { 'S', 'C', 'H', 'L' };
+    public static final int SCHEMA_VERSION = 4;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LIST = 1;
+    private static final int TAG_STUDENT = 2;
+    private static final int TAG_TEACHER = 3;
+    private static final int TAG_GROUP = 4;
+    private static final int TAG_SESSION = 5;
+    private static final int TAG_MESSAGE = 6;
+    private static final int TAG_TEST = 7;
+    private static final int TAG_QUESTION = 8;
+    private static final int TAG_TEST_RESULT = 9;
+    private static final int TAG_MATERIAL = 10;
+    private static final int TAG_CHAPTER = 11;
+    private static final int TAG_SUBJECT = 12;
+    private static final int TAG_NOTIFICATION = 13;
+    private static final int TAG_SUBMISSION_SNAPSHOT = 14;
+
+    // How a test result's answers are stored (schema version 2 and later).
+    private static final int ANSWERS_MAP = 0;
+    private static final int ANSWERS_PACKED = 1;
+    // Packed against the dictionary of the enclosing test, which is not repeated.
+    private static final int ANSWERS_PACKED_IN_TEST = 2;
+
+    /**
+     * @param obj The object to check.
+     * @return True if the object (an entity or a list of entities) can be
+     *         encoded by this codec.
+     */
+    public static boolean canEncode(Object obj) {
+        if (obj instanceof List) {
+            for (Object element : (List<?>) obj) {
+                if (element != null && tagOf(element) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return obj != null && tagOf(obj) >= 0;
+    }
+
+    /**
+     * @param data The raw bytes of a file or record.
+     * @return True if the bytes start with this codec's header.
+     */
+    public static boolean isEncoded(byte[] data) {
+        if (data.length < MAGIC.length + 1) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes an entity or a list of entities.
+     *
+     * @param obj The object to encode.
+     * @return The encoded bytes.
+     * @throws IllegalArgumentException if the object is not supported; see
+     *                                  {@link #canEncode(Object)}.
+     */
+    public static byte[] encode(Object obj) {
+        CodecOutput out = new CodecOutput();
+        writeValue(out, obj);
+        return out.toByteArray(MAGIC, SCHEMA_VERSION);
+    }
+
+    /**
+     * Decodes bytes produced by {@link #encode(Object)}.
+     *
+     * @param data The encoded bytes.
+     * @return The decoded object.
+     */
+    public static Object decode(byte[] data) throws IOException {
+        if (!isEncoded(data)) {
+            throw new IOException("Data does not start with the codec header.");
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IOException("Unsupported schema version " + version + " (supported up to "
+                    + SCHEMA_VERSION + ").");
+        }
+        CodecInput in = new CodecInput(data, MAGIC.length + 1, version);
+        in.readStringTable();
+        return readValue(in);
+    }
+
+    private static int tagOf(Object obj) {
+        if (obj instanceof Student) {
+            return TAG_STUDENT;
+        } else if (obj instanceof Teacher) {
+            return TAG_TEACHER;
+        } else if (obj instanceof Group) {
+            return TAG_GROUP;
+        } else if (obj instanceof Session) {
+            return TAG_SESSION;
+        } else if (obj instanceof Message) {
+            return TAG_MESSAGE;
+        } else if (obj instanceof Test) {
+            return TAG_TEST;
+        } else if (obj instanceof Question) {
+            return TAG_QUESTION;
+        } else if (obj instanceof TestResult) {
+            return TAG_TEST_RESULT;
+        } else if (obj instanceof Material) {
+            return TAG_MATERIAL;
+        } else if (obj instanceof Chapter) {
+            return TAG_CHAPTER;
+        } else if (obj instanceof Subject) {
+            return TAG_SUBJECT;
+        } else if (obj instanceof Notification) {
+            return TAG_NOTIFICATION;
+        }
+        return -1;
+    }
+
+    // -------------------- Encoding --------------------
+
+    private static void writeValue(CodecOutput out, Object obj) {
+        if (obj == null) {
+            out.writeByte(TAG_NULL);
+            return;
+        }
+        if (obj instanceof SubmissionSnapshot) {
+            SubmissionSnapshot snapshot = (SubmissionSnapshot) obj;
+            out.writeByte(TAG_SUBMISSION_SNAPSHOT);
+            out.writeVarLong(snapshot.getLogGeneration());
+            out.writeVarLong(snapshot.getLogEndOffset());
+            out.writeVarInt(snapshot.size());
+            for (TestResult tr : snapshot) {
+                writeValue(out, tr);
+            }
+            return;
+        }
+        if (obj instanceof List) {
+            List<?> list = (List<?>) obj;
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+            return;
+        }
+        int tag = tagOf(obj);
+        if (tag < 0) {
+            throw new IllegalArgumentException("Unsupported type for binary codec: " + obj.getClass().getName());
+        }
+        out.writeByte(tag);
+        switch (tag) {
+            case TAG_STUDENT:
+                writeStudent(out, (Student) obj);
+                break;
+            case TAG_TEACHER:
+                writeTeacher(out, (Teacher) obj);
+                break;
+            case TAG_GROUP:
+                writeGroup(out, (Group) obj);
+                break;
+            case TAG_SESSION:
+                writeSession(out, (Session) obj);
+                break;
+            case TAG_MESSAGE:
+                writeMessage(out, (Message) obj);
+                break;
+            case TAG_TEST:
+                writeTest(out, (Test) obj);
+                break;
+            case TAG_QUESTION:
+                writeQuestion(out, (Question) obj);
+                break;
+            case TAG_TEST_RESULT:
+                writeTestResult(out, (TestResult) obj, null);
+                break;
+            case TAG_MATERIAL:
+                writeMaterial(out, (Material) obj);
+                break;
+            case TAG_CHAPTER:
+                writeChapter(out, (Chapter) obj);
+                break;
+            case TAG_SUBJECT:
+                writeSubject(out, (Subject) obj);
+                break;
+            default:
+                writeNotification(out, (Notification) obj);
+                break;
+        }
+    }
+
+    private static void writeStringList(CodecOutput out, List<String> list) {
+        out.writeSize(list, list == null ? 0 : list.size());
+        if (list != null) {
+            for (String s : list) {
+                out.writeString(s);
+            }
+        }
+    }
+
+    private static void writeTimestamp(CodecOutput out, LocalDateTime timestamp) {
+        if (timestamp == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        out.writeSignedVarLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeVarInt(timestamp.getNano());
+    }
+
+    private static void writeStudent(CodecOutput out, Student s) {
+        out.writeString(s.getId());
+        out.writeString(s.getName());
+        out.writeString(s.getPassword());
+        out.writeDouble(s.getBalance());
+        writeStringList(out, s.getGroupIds());
+        List<Notification> notifications = s.getNotifications();
+        out.writeSize(notifications, notifications == null ? 0 : notifications.size());
+        if (notifications != null) {
+            for (Notification n : notifications) {
+                writeNotification(out, n);
+            }
+        }
+        List<TestResult> results = s.getTestResults();
+        out.writeSize(results, results == null ? 0 : results.size());
+        if (results != null) {
+            for (TestResult tr : results) {
+                writeTestResult(out, tr, null);
+            }
+        }
+        out.writeVarLong(s.getVersion());
+    }
+
+    private static void writeTeacher(CodecOutput out, Teacher t) {
+        out.writeString(t.getId());
+        out.writeString(t.getName());
+        out.writeString(t.getPassword());
+        out.writeVarLong(t.getVersion());
+    }
+
+    private static void writeGroup(CodecOutput out, Group g) {
+        out.writeString(g.getId());
+        out.writeString(g.getGroupName());
+        out.writeString(g.getChapterId());
+        writeStringList(out, g.getTeacherIds());
+        writeStringList(out, g.getStudentIds());
+        out.writeVarLong(g.getVersion());
+    }
+
+    private static void writeSession(CodecOutput out, Session s) {
+        out.writeString(s.getId());
+        out.writeString(s.getTitle());
+        out.writeString(s.getDateTime());
+        out.writeString(s.getChapterId());
+        out.writeString(s.getGroupId());
+        List<Message> messages = s.getMessages();
+        out.writeSize(messages, messages == null ? 0 : messages.size());
+        if (messages != null) {
+            for (Message m : messages) {
+                writeMessage(out, m);
+            }
+        }
+        writeStringList(out, s.getTeacherIds());
+        writeStringList(out, s.getStudentIds());
+        out.writeVarLong(s.getVersion());
+    }
+
+    private static void writeMessage(CodecOutput out, Message m) {
+        out.writeString(m.getSenderId());
+        out.writeString(m.getSenderName());
+        out.writeString(m.getContent());
+        writeTimestamp(out, m.getTimestamp());
+    }
+
+    private static void writeTest(CodecOutput out, Test t) {
+        out.writeString(t.getId());
+        out.writeString(t.getChapterId());
+        out.writeString(t.getTitle());
+        out.writeString(t.getStartTime());
+        out.writeSignedVarInt(t.getDuration());
+        List<Question> questions = t.getQuestions();
+        out.writeSize(questions, questions == null ? 0 : questions.size());
+        if (questions != null) {
+            for (Question q : questions) {
+                writeQuestion(out, q);
+            }
+        }
+        QuestionDictionary dictionary = (questions != null) ? t.getQuestionDictionary() : null;
+        List<TestResult> results = t.getTestResults();
+        out.writeSize(results, results == null ? 0 : results.size());
+        if (results != null) {
+            for (TestResult tr : results) {
+                writeTestResult(out, tr, dictionary);
+            }
+        }
+        out.writeVarLong(t.getVersion());
+    }
+
+    private static void writeQuestion(CodecOutput out, Question q) {
+        out.writeString(q.getId());
+        out.writeString(q.getTestId());
+        out.writeString(q.getText());
+        String[] options = q.getOptions();
+        out.writeSize(options, options == null ? 0 : options.length);
+        if (options != null) {
+            for (String option : options) {
+                out.writeString(option);
+            }
+        }
+        out.writeSignedVarInt(q.getCorrectOption());
+    }
+
+    private static void writeTestResult(CodecOutput out, TestResult tr, QuestionDictionary testDictionary) {
+        out.writeString(tr.getTestId());
+        out.writeString(tr.getStudentId());
+        if (tr.isPacked()) {
+            QuestionDictionary dictionary = tr.getQuestionDictionary();
+            if (dictionary.sameIds(testDictionary)) {
+                out.writeByte(ANSWERS_PACKED_IN_TEST);
+            } else {
+                out.writeByte(ANSWERS_PACKED);
+                out.writeVarInt(dictionary.size());
+                for (int i = 0; i < dictionary.size(); i++) {
+                    out.writeString(dictionary.getQuestionId(i));
+                }
+            }
+            out.writeBytes(tr.getPackedAnswers());
+            out.writeDouble(tr.getScore());
+            out.writeString(tr.getSubmissionTime());
+            return;
+        }
+        out.writeByte(ANSWERS_MAP);
+        Map<String, Integer> answers = tr.getAnswers();
+        out.writeSize(answers, answers == null ? 0 : answers.size());
+        if (answers != null) {
+            for (Map.Entry<String, Integer> answer : answers.entrySet()) {
+                out.writeString(answer.getKey());
+                // Null answers are stored as 0, selected options shifted by one.
+                Integer option = answer.getValue();
+                out.writeVarInt(option == null ? 0 : (option << 1 ^ option >> 31) + 1);
+            }
+        }
+        out.writeDouble(tr.getScore());
+        out.writeString(tr.getSubmissionTime());
+    }
+
+    private static void writeMaterial(CodecOutput out, Material m) {
+        out.writeString(m.getId());
+        out.writeString(m.getTitle());
+        out.writeString(m.getType());
+        out.writeString(m.getPathOrContent());
+        out.writeString(m.getChapterId());
+    }
+
+    private static void writeChapter(CodecOutput out, Chapter c) {
+        out.writeString(c.getId());
+        out.writeString(c.getName());
+        out.writeString(c.getSubjectId());
+        out.writeString(c.getDescription());
+    }
+
+    private static void writeSubject(CodecOutput out, Subject s) {
+        out.writeString(s.getId());
+        out.writeString(s.getName());
+        out.writeString(s.getType());
+        out.writeDouble(s.getPrice());
+    }
+
+    private static void writeNotification(CodecOutput out, Notification n) {
+        out.writeString(n.getMessage());
+        out.writeString(n.getSessionId());
+        writeTimestamp(out, n.getTimestamp());
+    }
+
+    // -------------------- Decoding --------------------
+
+    private static Object readValue(CodecInput in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_LIST: {
+                int size = in.readVarInt();
+                ArrayList<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_STUDENT:
+                return readStudent(in);
+            case TAG_TEACHER:
+                return readVersion(in, new Teacher(in.readString(), in.readString(), in.readString()));
+            case TAG_GROUP:
+                return readGroup(in);
+            case TAG_SESSION:
+                return readSession(in);
+            case TAG_MESSAGE:
+                return readMessage(in);
+            case TAG_TEST:
+                return readTest(in);
+            case TAG_QUESTION:
+                return readQuestion(in);
+            case TAG_TEST_RESULT:
+                return readTestResult(in, null);
+            case TAG_MATERIAL:
+                return new Material(in.readString(), in.readString(), in.readString(), in.readString(),
+                        in.readString());
+            case TAG_CHAPTER:
+                return new Chapter(in.readString(), in.readString(), in.readString(), in.readString());
+            case TAG_SUBJECT:
+                return new Subject(in.readString(), in.readString(), in.readString(), in.readDouble());
+            case TAG_NOTIFICATION:
+                return readNotification(in);
+            case TAG_SUBMISSION_SNAPSHOT: {
+                long logGeneration = in.readVarLong();
+                long logEndOffset = in.readVarLong();
+                int size = in.readVarInt();
+                List<TestResult> results = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    results.add((TestResult) readValue(in));
+                }
+                return new SubmissionSnapshot(results, logGeneration, logEndOffset);
+            }
+            default:
+                throw new IOException("Unknown record tag " + tag);
+        }
+    }
+
+    // References to other entities share one String per ID (see IdDictionary).
+    private static String readId(CodecInput in) throws IOException {
+        return IdDictionary.intern(in.readString());
+    }
+
+    // Reads a list of entity IDs.
+    private static void readStringList(CodecInput in, List<String> target) throws IOException {
+        int size = in.readSize();
+        for (int i = 0; i < size; i++) {
+            target.add(readId(in));
+        }
+    }
+
+    private static LocalDateTime readTimestamp(CodecInput in) throws IOException {
+        if (in.readByte() == 0) {
+            return null;
+        }
+        long epochSecond = in.readSignedVarLong();
+        int nano = in.readVarInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    // Entity versions are stored from schema version 3 on.
+    private static <T extends Versioned> T readVersion(CodecInput in, T entity) throws IOException {
+        if (in.getVersion() >= 3) {
+            entity.setVersion(in.readVarLong());
+        }
+        return entity;
+    }
+
+    private static Student readStudent(CodecInput in) throws IOException {
+        Student s = new Student(in.readString(), in.readString(), in.readString(), in.readDouble());
+        readStringList(in, s.getGroupIds());
+        int notificationCount = in.readSize();
+        for (int i = 0; i < notificationCount; i++) {
+            s.addNotification(readNotification(in));
+        }
+        int resultCount = in.readSize();
+        for (int i = 0; i < resultCount; i++) {
+            s.addTestResult(readTestResult(in, null));
+        }
+        return readVersion(in, s);
+    }
+
+    private static Group readGroup(CodecInput in) throws IOException {
+        String id = in.readString();
+        String groupName = in.readString();
+        String chapterId = in.readString();
+        List<String> teacherIds = new ArrayList<>();
+        readStringList(in, teacherIds);
+        Group g = new Group(id, groupName, chapterId, teacherIds);
+        int studentCount = in.readSize();
+        for (int i = 0; i < studentCount; i++) {
+            g.addStudent(readId(in));
+        }
+        return readVersion(in, g);
+    }
+
+    private static Session readSession(CodecInput in) throws IOException {
+        Session s = new Session(in.readString(), in.readString(), in.readString(), in.readString(),
+                in.readString());
+        int messageCount = in.readSize();
+        for (int i = 0; i < messageCount; i++) {
+            s.addMessage(readMessage(in));
+        }
+        readStringList(in, s.getTeacherIds());
+        readStringList(in, s.getStudentIds());
+        return readVersion(in, s);
+    }
+
+    private static Message readMessage(CodecInput in) throws IOException {
+        return new Message(in.readString(), in.readString(), in.readString(), readTimestamp(in));
+    }
+
+    private static Test readTest(CodecInput in) throws IOException {
+        Test t = new Test(in.readString(), in.readString(), in.readString(), in.readString(),
+                in.readSignedVarInt());
+        int questionCount = in.readSize();
+        for (int i = 0; i < questionCount; i++) {
+            t.addQuestion(readQuestion(in));
+        }
+        QuestionDictionary dictionary = t.getQuestionDictionary();
+        int resultCount = in.readSize();
+        for (int i = 0; i < resultCount; i++) {
+            TestResult tr = readTestResult(in, dictionary);
+            // Results written with answer maps are packed as they are loaded.
+            tr.packAnswers(dictionary);
+            t.addTestResult(tr);
+        }
+        return readVersion(in, t);
+    }
+
+    private static Question readQuestion(CodecInput in) throws IOException {
+        String id = in.readString();
+        String testId = readId(in);
+        String text = in.readString();
+        int optionCount = in.readSize();
+        String[] options = null;
+        if (optionCount >= 0) {
+            options = new String[optionCount];
+            for (int i = 0; i < optionCount; i++) {
+                options[i] = in.readString();
+            }
+        }
+        return new Question(id, testId, text, options, in.readSignedVarInt());
+    }
+
+    private static TestResult readTestResult(CodecInput in, QuestionDictionary testDictionary) throws IOException {
+        String testId = readId(in);
+        String studentId = readId(in);
+        int form = (in.getVersion() >= 2) ? in.readByte() : ANSWERS_MAP;
+        if (form == ANSWERS_PACKED || form == ANSWERS_PACKED_IN_TEST) {
+            QuestionDictionary dictionary;
+            if (form == ANSWERS_PACKED_IN_TEST) {
+                if (testDictionary == null) {
+                    throw new IOException("Test result refers to the dictionary of an enclosing test, but has none");
+                }
+                dictionary = testDictionary;
+            } else {
+                String[] questionIds = new String[in.readVarInt()];
+                for (int i = 0; i < questionIds.length; i++) {
+                    questionIds[i] = in.readString();
+                }
+                dictionary = new QuestionDictionary(questionIds);
+            }
+            byte[] packed = in.readBytes(dictionary.size());
+            double score = in.readDouble();
+            return new TestResult(testId, studentId, dictionary, packed, score, in.readString());
+        } else if (form != ANSWERS_MAP) {
+            throw new IOException("Unknown answer form " + form);
+        }
+        int answerCount = in.readSize();
+        Map<String, Integer> answers = null;
+        if (answerCount >= 0) {
+            answers = new HashMap<>();
+            for (int i = 0; i < answerCount; i++) {
+                String questionId = in.readString();
+                int raw = in.readVarInt();
+                Integer option = null;
+                if (raw != 0) {
+                    int zigzag = raw - 1;
+                    option = (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                answers.put(questionId, option);
+            }
+        }
+        double score = in.readDouble();
+        return new TestResult(testId, studentId, answers, score, in.readString());
+    }
+
+    private static Notification readNotification(CodecInput in) throws IOException {
+        return new Notification(in.readString(), in.readString(), readTimestamp(in));
+    }
+}
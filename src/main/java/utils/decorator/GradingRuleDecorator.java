@@ -3,7 +3,10 @@ package utils.decorator;
 import utils.interpreter.GradingRuleExpression;
 
 /**
- * Abstract decorator class for grading rules.
+ * Abstract decorator class for grading rules. Decorators that only depend on
+ * the question and selected option can implement
+ * {@link utils.interpreter.TableCompilable} to be precomputed by
+ * {@link utils.interpreter.ScoreTable}.
  */
 public abstract class GradingRuleDecorator implements GradingRuleExpression {
     protected GradingRuleExpression wrappee;
@@ -2,12 +2,14 @@ package utils.decorator;
 
 import model.subject.Question;
 import utils.interpreter.GradingRuleExpression;
+import utils.interpreter.ScoreTable;
+import utils.interpreter.TableCompilable;
 
 /**
  * Extends a grading rule by awarding partial credit if the selected answer is
  * adjacent to the correct answer.
  */
-public class OrderedMultipleChoiceDecorator extends GradingRuleDecorator {
+public class OrderedMultipleChoiceDecorator extends GradingRuleDecorator implements TableCompilable {
     public OrderedMultipleChoiceDecorator(GradingRuleExpression wrappee) {
         super(wrappee);
     }
@@ -23,4 +25,11 @@ public class OrderedMultipleChoiceDecorator extends GradingRuleDecorator {
         }
         return baseScore;
     }
+
+    // Depends only on the question and option, so compilable whenever the
+    // wrapped rule is.
+    @Override
+    public boolean isTableCompilable() {
+        return ScoreTable.isCompilable(wrappee);
+    }
 }
@@ -6,9 +6,14 @@ import model.subject.Question;
  * Basic grading rule: full credit only if the selected option is exactly
  * correct.
  */
-public class BasicGradingRuleExpression implements GradingRuleExpression {
+public class BasicGradingRuleExpression implements GradingRuleExpression, TableCompilable {
     @Override
     public double evaluate(Question question, int selectedOption) {
         return (selectedOption == question.getCorrectOption()) ? 1.0 : 0.0;
     }
+
+    @Override
+    public boolean isTableCompilable() {
+        return true;
+    }
 }
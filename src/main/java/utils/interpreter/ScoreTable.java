@@ -0,0 +1,136 @@
+package utils.interpreter;
+
+import model.subject.Question;
+import model.subject.QuestionDictionary;
+import model.subject.Test;
+import model.subject.TestResult;
+
+import java.util.Map;
+
+/**
+ * A grading rule compiled against one test: the score of every option of every
+ * question is computed once, so grading a submission is a lookup per answer
+ * instead of a walk down the rule chain. Rules that are not
+ * {@link TableCompilable}, and options outside a question's option range, are
+ * evaluated through the rule itself, so scores are always exactly those of
+ * {@link GradingRuleExpression#evaluate}.
+ */
+public class ScoreTable {
+    private final GradingRuleExpression rule;
+    private final Question[] questions;
+    private final String[] questionIds;
+    private final QuestionDictionary dictionary;
+    // scores[questionIndex][option], or null if the rule is not compilable.
+    private final double[][] scores;
+
+    private ScoreTable(GradingRuleExpression rule, Question[] questions, QuestionDictionary dictionary,
+            double[][] scores) {
+        this.rule = rule;
+        this.dictionary = dictionary;
+        this.questions = questions;
+        this.scores = scores;
+        this.questionIds = new String[questions.length];
+        for (int i = 0; i < questions.length; i++) {
+            questionIds[i] = questions[i].getId();
+        }
+    }
+
+    /**
+     * Compiles a grading rule for the questions of a test.
+     *
+     * @param rule The grading rule.
+     * @param test The test whose questions will be graded.
+     * @return The compiled table.
+     */
+    public static ScoreTable compile(GradingRuleExpression rule, Test test) {
+        Question[] questions = test.getQuestions().toArray(new Question[0]);
+        QuestionDictionary dictionary = test.getQuestionDictionary();
+        if (!isCompilable(rule)) {
+            return new ScoreTable(rule, questions, dictionary, null);
+        }
+        double[][] scores = new double[questions.length][];
+        for (int q = 0; q < questions.length; q++) {
+            String[] options = questions[q].getOptions();
+            int optionCount = (options != null) ? options.length : 0;
+            scores[q] = new double[optionCount];
+            for (int option = 0; option < optionCount; option++) {
+                scores[q][option] = rule.evaluate(questions[q], option);
+            }
+        }
+        return new ScoreTable(rule, questions, dictionary, scores);
+    }
+
+    /**
+     * @param rule A grading rule.
+     * @return true if the rule opts in to table compilation.
+     */
+    public static boolean isCompilable(GradingRuleExpression rule) {
+        return rule instanceof TableCompilable && ((TableCompilable) rule).isTableCompilable();
+    }
+
+    /**
+     * @return true if scores are looked up rather than evaluated.
+     */
+    public boolean isCompiled() {
+        return scores != null;
+    }
+
+    /**
+     * @return The number of questions in the compiled test.
+     */
+    public int getQuestionCount() {
+        return questions.length;
+    }
+
+    /**
+     * Scores one answer.
+     *
+     * @param questionIndex  The index of the question in the test.
+     * @param selectedOption The selected option.
+     * @return The score for the answer.
+     */
+    public double score(int questionIndex, int selectedOption) {
+        if (scores != null) {
+            double[] questionScores = scores[questionIndex];
+            if (selectedOption >= 0 && selectedOption < questionScores.length) {
+                return questionScores[selectedOption];
+            }
+        }
+        return rule.evaluate(questions[questionIndex], selectedOption);
+    }
+
+    /**
+     * Sums the scores of a submission's answers, in question order. Unanswered
+     * questions score zero.
+     *
+     * @param answers The answers, by question ID.
+     * @return The total score.
+     */
+    public double totalScore(Map<String, Integer> answers) {
+        double total = 0.0;
+        for (int q = 0; q < questionIds.length; q++) {
+            Integer selectedOption = answers.get(questionIds[q]);
+            total += (selectedOption != null) ? score(q, selectedOption) : 0.0;
+        }
+        return total;
+    }
+
+    /**
+     * Sums the scores of a submission's answers, in question order. Packed
+     * answers for this test are read directly by position.
+     *
+     * @param result The submission.
+     * @return The total score.
+     */
+    public double totalScore(TestResult result) {
+        if (!result.isPacked() || !dictionary.sameIds(result.getQuestionDictionary())) {
+            return totalScore(result.getAnswers());
+        }
+        byte[] packed = result.getPackedAnswers();
+        double total = 0.0;
+        for (int q = 0; q < packed.length; q++) {
+            total += (packed[q] != 0) ? score(q, (packed[q] & 0xFF) - 1) : 0.0;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,14 @@
+package utils.interpreter;
+
+/**
+ * Implemented by grading rules whose score depends only on the question and
+ * the selected option, so that {@link ScoreTable} can precompute it. Rules
+ * that do not implement this interface (or return false) are always
+ * evaluated directly.
+ */
+public interface TableCompilable {
+    /**
+     * @return true if {@code evaluate} can be replaced by a table lookup.
+     */
+    boolean isTableCompilable();
+}
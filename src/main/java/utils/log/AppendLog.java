@@ -0,0 +1,331 @@
+package utils.log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import utils.observer.FileChangeWatcher;
+
+/**
+ * Append-only file of length-prefixed records. Every record is stored as a
+ * 4-byte big-endian length followed by the record bytes, so a writer only ever
+ * touches the end of the file and a reader can resume from any record boundary.
+ *
+ * The file starts with a header holding a random generation number, which is
+ * replaced whenever the log is truncated (see {@link #drain}). Readers that
+ * follow the log pass the generation along with their offset, so they learn
+ * about a truncation instead of resuming at an offset that no longer means
+ * anything. Logs written before the header existed have generation 0.
+ */
+public class AppendLog {
+    // Header: a negative length marker, then the generation.
+    private static final int HEADER_MARK = -1;
+    private static final int HEADER_BYTES = 4 + 8;
+
+    // One instance per file, so appends within the process are ordered by the
+    // instance monitor rather than contending for the file lock.
+    private static final Map<String, AppendLog> shared = new ConcurrentHashMap<>();
+
+    private final File file;
+
+    public AppendLog(String filePath) {
+        this.file = new File(filePath);
+    }
+
+    /**
+     * Returns the process-wide instance for a log file.
+     *
+     * @param filePath The log file.
+     * @return The shared log.
+     */
+    public static AppendLog forPath(String filePath) {
+        return shared.computeIfAbsent(filePath, AppendLog::new);
+    }
+
+    /**
+     * Drops the shared instance for a log file, e.g. after deleting the file.
+     *
+     * @param filePath The log file.
+     */
+    public static void release(String filePath) {
+        shared.remove(filePath);
+    }
+
+    /**
+     * Result of reading the log from a given offset.
+     */
+    public static class Chunk {
+        private final List<byte[]> records;
+        private final long generation;
+        private final long endOffset;
+        private final boolean reset;
+
+        Chunk(List<byte[]> records, long generation, long endOffset, boolean reset) {
+            this.records = records;
+            this.generation = generation;
+            this.endOffset = endOffset;
+            this.reset = reset;
+        }
+
+        public List<byte[]> getRecords() {
+            return records;
+        }
+
+        /**
+         * @return The generation of the log that was read, to be passed to the
+         *         next {@link AppendLog#readFrom(long, long)} call.
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * @return The offset just past the last complete record, to be passed to
+         *         the next {@link AppendLog#readFrom(long, long)} call.
+         */
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        /**
+         * @return Whether the log was truncated since the position the read
+         *         started from, so it was read from its start instead and
+         *         records read earlier may be gone.
+         */
+        public boolean isReset() {
+            return reset;
+        }
+    }
+
+    /**
+     * A position in the log: its generation and a byte offset.
+     */
+    public static class Position {
+        private final long generation;
+        private final long offset;
+
+        Position(long generation, long offset) {
+            this.generation = generation;
+            this.offset = offset;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+    }
+
+    public String getPath() {
+        return file.getPath();
+    }
+
+    /**
+     * Appends a single record to the end of the log and forces it to disk.
+     *
+     * @param record The record bytes.
+     * @return The offset at which the record was written.
+     */
+    public long append(byte[] record) throws IOException {
+        long offset = write(record);
+        // Notify outside the monitor: listeners may read this log from another
+        // thread.
+        FileChangeWatcher.fireChanged(file.getPath());
+        return offset;
+    }
+
+    private synchronized long write(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+        buffer.putInt(record.length).put(record).flip();
+        long offset;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0) {
+                    writeHeader(channel);
+                }
+                offset = channel.size();
+                channel.position(offset);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } finally {
+                lock.release();
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the current end of the log, creating the log (with its header)
+     * if it does not exist yet, so the position stays valid until the log is
+     * truncated.
+     *
+     * @return The generation and size of the log.
+     */
+    public synchronized Position position() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0) {
+                    writeHeader(channel);
+                    channel.force(false);
+                }
+                return new Position(generationOf(channel), channel.size());
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Reads every complete record in the log. A partially written record at
+     * the tail (for example after a crash mid-append) is ignored and not
+     * included in the returned end offset.
+     *
+     * @return The records and the position to resume from.
+     */
+    public Chunk readAll() throws IOException {
+        return readFrom(0, 0);
+    }
+
+    /**
+     * Reads every complete record from a position returned by an earlier read.
+     * If the log has been truncated since (its generation changed), it is read
+     * from the start and the chunk is marked as {@link Chunk#isReset() reset}.
+     *
+     * @param generation The generation of the earlier read; any value, e.g. 0,
+     *                   together with offset 0 to read the whole log.
+     * @param offset     The end offset of the earlier read.
+     * @return The records read and the position to resume from.
+     */
+    public synchronized Chunk readFrom(long generation, long offset) throws IOException {
+        if (!file.exists()) {
+            return new Chunk(new ArrayList<>(), 0, 0, offset > 0);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long current = generationOf(channel);
+            long start = dataStart(channel);
+            long length = channel.size();
+            if (current == generation && offset >= start && offset <= length) {
+                return readRecords(channel, current, offset, false);
+            }
+            return readRecords(channel, current, start, offset > 0);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        // Positive and non-zero, so it never matches a header-less log.
+        long generation = (ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE) | 1;
+        header.putInt(HEADER_MARK).putLong(generation).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static long generationOf(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        header.flip();
+        return (header.getInt() == HEADER_MARK) ? header.getLong() : 0;
+    }
+
+    private static long dataStart(FileChannel channel) throws IOException {
+        return (generationOf(channel) != 0) ? HEADER_BYTES : 0;
+    }
+
+    private static Chunk readRecords(FileChannel channel, long generation, long offset, boolean reset)
+            throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long length = channel.size();
+        long position = offset;
+        channel.position(offset);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        while (position + 4 <= length) {
+            int size;
+            try {
+                size = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (size < 0 || position + 4 + size > length) {
+                break;
+            }
+            byte[] record = new byte[size];
+            in.readFully(record);
+            records.add(record);
+            position += 4 + size;
+        }
+        return new Chunk(records, generation, position, reset);
+    }
+
+    /**
+     * @return The current size of the log in bytes.
+     */
+    public long size() {
+        return file.length();
+    }
+
+    /**
+     * Runs the given action while holding the log's file lock, so that no other
+     * process can append in the meantime. The action receives the records
+     * currently in the log and, if it returns true, the log is truncated
+     * afterwards and starts a new generation.
+     */
+    public synchronized void drain(DrainAction action) throws IOException {
+        boolean truncated = false;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                Chunk chunk = readRecords(channel, generationOf(channel), dataStart(channel), false);
+                if (action.apply(chunk)) {
+                    channel.truncate(0);
+                    writeHeader(channel);
+                    channel.force(true);
+                    truncated = true;
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        if (truncated) {
+            FileChangeWatcher.fireChanged(file.getPath());
+        }
+    }
+
+    /**
+     * Callback used by {@link #drain(DrainAction)}.
+     */
+    public interface DrainAction {
+        /**
+         * @param chunk The records in the log, with its generation and end
+         *              offset.
+         * @return Whether to truncate the log.
+         */
+        boolean apply(Chunk chunk) throws IOException;
+    }
+}
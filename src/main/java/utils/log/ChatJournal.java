@@ -0,0 +1,120 @@
+package utils.log;
+
+import model.subject.Message;
+import utils.SerializationUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-session append-only chat journal. Sending a message appends one record
+ * to the session's journal file; each reader keeps the byte offset it has read
+ * up to and only fetches messages added since, so refreshing costs the same no
+ * matter how long the conversation is.
+ */
+public class ChatJournal {
+    private final AppendLog log;
+    // The journal generation the offset belongs to; it changes if the journal
+    // is deleted and started again.
+    private long generation;
+    private long offset;
+
+    /**
+     * Creates a reader positioned at the start of the session's journal.
+     *
+     * @param sessionId The session whose chat to read.
+     */
+    public ChatJournal(String sessionId) {
+        this.log = logFor(sessionId);
+    }
+
+    /**
+     * @param sessionId The session ID.
+     * @return The path of the session's journal file, for change subscriptions.
+     */
+    public static String pathFor(String sessionId) {
+        return "chat_" + sessionId + ".log";
+    }
+
+    /**
+     * Appends a message to a session's journal.
+     *
+     * @param sessionId The session ID.
+     * @param message   The message to append.
+     * @return The journal offset of the message, or -1 if it could not be
+     *         written.
+     */
+    public static long append(String sessionId, Message message) {
+        try {
+            return logFor(sessionId).append(SerializationUtil.toBytes(message));
+        } catch (IOException e) {
+            System.err.println("Error appending message to " + pathFor(sessionId) + ": " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Deletes a session's journal, e.g. when the session is ended.
+     *
+     * @param sessionId The session ID.
+     */
+    public static void delete(String sessionId) {
+        AppendLog.release(pathFor(sessionId));
+        new File(pathFor(sessionId)).delete();
+    }
+
+    /**
+     * Reads the messages appended since the previous call (or since the start of
+     * the journal on the first call). If the journal was deleted and started
+     * again in the meantime, its messages are read from the start. Safe to call
+     * from a background thread.
+     *
+     * @return The new messages, in the order they were sent.
+     */
+    public synchronized List<Message> readNew() {
+        List<Message> messages = new ArrayList<>();
+        try {
+            AppendLog.Chunk chunk = log.readFrom(generation, offset);
+            for (byte[] record : chunk.getRecords()) {
+                messages.add(SerializationUtil.fromBytes(record));
+            }
+            generation = chunk.getGeneration();
+            offset = chunk.getEndOffset();
+        } catch (IOException e) {
+            System.err.println("Error reading messages from " + log.getPath() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return messages;
+    }
+
+    /**
+     * Positions the reader at the start of the journal again, so the next
+     * {@link #readNew()} returns every message, e.g. to redisplay the chat.
+     */
+    public synchronized void restart() {
+        generation = 0;
+        offset = 0;
+    }
+
+    /**
+     * @return The offset up to which messages have been read; messages at
+     *         lower offsets were returned by an earlier {@link #readNew()}.
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The journal file path.
+     */
+    public String getPath() {
+        return log.getPath();
+    }
+
+    private static AppendLog logFor(String sessionId) {
+        return AppendLog.forPath(pathFor(sessionId));
+    }
+}
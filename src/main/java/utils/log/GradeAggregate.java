@@ -0,0 +1,89 @@
+package utils.log;
+
+/**
+ * Running sum, count, minimum and maximum of a group of scores.
+ */
+public class GradeAggregate {
+    private double sum;
+    private int count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    GradeAggregate() {
+    }
+
+    private GradeAggregate(GradeAggregate other) {
+        this.sum = other.sum;
+        this.count = other.count;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    void add(double score) {
+        sum += score;
+        count++;
+        if (count == 1) {
+            min = score;
+            max = score;
+        } else {
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+        }
+    }
+
+    /**
+     * Replaces one score of the group by another.
+     *
+     * @return False if the old score was the minimum or maximum, in which case
+     *         those must be recomputed with {@link #reset()} and {@link #add}.
+     */
+    boolean replace(double oldScore, double newScore) {
+        if (oldScore == min || oldScore == max) {
+            return false;
+        }
+        sum += newScore - oldScore;
+        min = Math.min(min, newScore);
+        max = Math.max(max, newScore);
+        return true;
+    }
+
+    void reset() {
+        sum = 0;
+        count = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    GradeAggregate copy() {
+        return new GradeAggregate(this);
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The lowest score, or NaN if the group is empty.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return The highest score, or NaN if the group is empty.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return The average score, or 0 if the group is empty.
+     */
+    public double getAverage() {
+        return (count == 0) ? 0 : sum / count;
+    }
+}
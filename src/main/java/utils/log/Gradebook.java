@@ -0,0 +1,315 @@
+package utils.log;
+
+import model.subject.Test;
+import model.subject.TestResult;
+import utils.EntityCache;
+import utils.IdDictionary;
+import utils.SerializationUtil;
+import utils.observer.FileChangeWatcher;
+import utils.strategy.GradeIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Materialized view over the submitted test results, with running score
+ * aggregates per (student, test), (student, chapter), test and student. The
+ * view is built once from the {@link SubmissionLog} and then kept up to date
+ * by following the log: each new submission updates the aggregates it belongs
+ * to, so averages and summaries are read without scanning the results.
+ *
+ * Regrades reported through {@link #regrade(TestResult)} replace the score of
+ * an existing submission in place.
+ */
+public class Gradebook {
+    private static final String TESTS_PATH = "tests.txt";
+
+    private static Gradebook instance;
+
+    // In submission order.
+    private final Map<String, Submission> submissions = new LinkedHashMap<>();
+    // Groups are keyed by IdDictionary keys; pairs are combined with pairKey.
+    private final Map<Long, Group> byStudentTest = new HashMap<>();
+    private final Map<Long, Group> byStudentChapter = new HashMap<>();
+    private final Map<Integer, Group> byTest = new HashMap<>();
+    private final Map<Integer, Group> byStudent = new HashMap<>();
+    // Regraded results by submission key, applied again if the view is rebuilt.
+    // Entries are dropped once they no longer differ from the logged result
+    // or the submission is gone from the log.
+    private final Map<String, TestResult> regraded = new HashMap<>();
+
+    private GradeIndex index;
+    private List<Test> indexedTests;
+    private EntityCache.Stamp snapshotStamp;
+    private long logGeneration;
+    private long logOffset;
+
+    // One submitted result and the groups it is counted in.
+    private static class Submission {
+        // As read from the submission log.
+        private TestResult logged;
+        private TestResult result;
+        private double score;
+        private final List<Group> groups = new ArrayList<>(4);
+    }
+
+    private static class Group {
+        private final GradeAggregate aggregate = new GradeAggregate();
+        private final List<Submission> members = new ArrayList<>();
+
+        void recompute() {
+            aggregate.reset();
+            for (Submission member : members) {
+                aggregate.add(member.score);
+            }
+        }
+    }
+
+    private Gradebook() {
+    }
+
+    /**
+     * Returns the process-wide gradebook, loading it from the submission log
+     * on first use.
+     *
+     * @return The gradebook.
+     */
+    public static synchronized Gradebook getInstance() {
+        if (instance == null) {
+            Gradebook gradebook = new Gradebook();
+            gradebook.sync();
+            FileChangeWatcher.subscribe(TestResult.class, filePath -> gradebook.sync());
+            FileChangeWatcher.subscribe(SubmissionLog.SNAPSHOT_PATH, filePath -> gradebook.sync());
+            instance = gradebook;
+        }
+        return instance;
+    }
+
+    /**
+     * Brings the view up to date with the submission log: new log records are
+     * applied incrementally, and the view is rebuilt if the log was compacted
+     * into the snapshot since the last call.
+     */
+    public synchronized void sync() {
+        EntityCache.Stamp stamp = EntityCache.stampOf(new File(SubmissionLog.SNAPSHOT_PATH));
+        try {
+            if (!Objects.equals(stamp, snapshotStamp)) {
+                rebuild(stamp);
+                return;
+            }
+            AppendLog.Chunk chunk = SubmissionLog.readLogFrom(logGeneration, logOffset);
+            if (chunk.isReset()) {
+                // The log was truncated without a new snapshot.
+                rebuild(stamp);
+                return;
+            }
+            for (TestResult tr : SubmissionLog.decode(chunk.getRecords())) {
+                record(tr);
+            }
+            logGeneration = chunk.getGeneration();
+            logOffset = chunk.getEndOffset();
+        } catch (IOException e) {
+            System.err.println("Error updating gradebook from " + SubmissionLog.LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void rebuild(EntityCache.Stamp stamp) throws IOException {
+        submissions.clear();
+        byStudentTest.clear();
+        byStudentChapter.clear();
+        byTest.clear();
+        byStudent.clear();
+        snapshotStamp = stamp;
+        List<TestResult> results = new ArrayList<>();
+        AppendLog.Chunk chunk = SubmissionLog.read(results);
+        for (TestResult tr : results) {
+            record(tr);
+        }
+        regraded.keySet().retainAll(submissions.keySet());
+        logGeneration = chunk.getGeneration();
+        logOffset = chunk.getEndOffset();
+    }
+
+    /**
+     * Adds a submission to the view, or updates its score if the same
+     * submission is already in it. A regrade of the submission takes precedence
+     * over the submitted score.
+     *
+     * @param tr The submitted result.
+     */
+    public synchronized void record(TestResult tr) {
+        String key = keyOf(tr);
+        Submission existing = submissions.get(key);
+        TestResult latest = regraded.getOrDefault(key, tr);
+        if (existing != null) {
+            existing.logged = tr;
+            update(existing, latest);
+            return;
+        }
+        Submission submission = new Submission();
+        submission.logged = tr;
+        submission.result = latest;
+        submission.score = latest.getScore();
+        int student = IdDictionary.keyOf(tr.getStudentId());
+        int test = IdDictionary.keyOf(tr.getTestId());
+        submission.groups.add(groupFor(byStudentTest, IdDictionary.pairKey(student, test)));
+        submission.groups.add(groupFor(byTest, test));
+        submission.groups.add(groupFor(byStudent, student));
+        String chapterId = chapterOf(tr.getTestId());
+        if (chapterId != null) {
+            submission.groups.add(groupFor(byStudentChapter,
+                    IdDictionary.pairKey(student, IdDictionary.keyOf(chapterId))));
+        }
+        for (Group group : submission.groups) {
+            group.members.add(submission);
+            group.aggregate.add(submission.score);
+        }
+        submissions.put(key, submission);
+    }
+
+    /**
+     * Updates the score of a submission already in the view, e.g. after the
+     * exam was processed again. Results that were never submitted through the
+     * submission log are ignored.
+     *
+     * @param tr The regraded result.
+     */
+    public synchronized void regrade(TestResult tr) {
+        String key = keyOf(tr);
+        Submission existing = submissions.get(key);
+        if (existing != null) {
+            if (tr.getScore() == existing.logged.getScore()) {
+                regraded.remove(key);
+            } else {
+                regraded.put(key, tr);
+            }
+            update(existing, tr);
+        }
+    }
+
+    /**
+     * Calls {@link #regrade(TestResult)} for each result.
+     *
+     * @param results The regraded results.
+     */
+    public synchronized void regradeAll(List<TestResult> results) {
+        for (TestResult tr : results) {
+            regrade(tr);
+        }
+    }
+
+    private void update(Submission submission, TestResult tr) {
+        double oldScore = submission.score;
+        submission.result = tr;
+        submission.score = tr.getScore();
+        if (oldScore == submission.score) {
+            return;
+        }
+        for (Group group : submission.groups) {
+            if (!group.aggregate.replace(oldScore, submission.score)) {
+                group.recompute();
+            }
+        }
+    }
+
+    /**
+     * @return The scores of a student's submissions for a test.
+     */
+    public synchronized GradeAggregate getStudentTestGrades(String studentId, String testId) {
+        return aggregateOf(byStudentTest, pairKeyOf(studentId, testId));
+    }
+
+    /**
+     * @return The scores of a student's submissions for the tests of a chapter.
+     */
+    public synchronized GradeAggregate getStudentChapterGrades(String studentId, String chapterId) {
+        return aggregateOf(byStudentChapter, pairKeyOf(studentId, chapterId));
+    }
+
+    /**
+     * @return The scores of all submissions for a test.
+     */
+    public synchronized GradeAggregate getTestGrades(String testId) {
+        return aggregateOf(byTest, IdDictionary.lookup(testId));
+    }
+
+    /**
+     * @return The scores of all of a student's submissions.
+     */
+    public synchronized GradeAggregate getStudentGrades(String studentId) {
+        return aggregateOf(byStudent, IdDictionary.lookup(studentId));
+    }
+
+    /**
+     * @param studentId The student ID.
+     * @return The student's average score over all submissions, or 0 if none.
+     */
+    public double getStudentAverage(String studentId) {
+        return getStudentGrades(studentId).getAverage();
+    }
+
+    /**
+     * @param testId The test ID.
+     * @return The submissions for the test, in submission order.
+     */
+    public synchronized List<TestResult> getResultsForTest(String testId) {
+        Group group = byTest.get(IdDictionary.lookup(testId));
+        List<TestResult> results = new ArrayList<>();
+        if (group != null) {
+            for (Submission member : group.members) {
+                results.add(member.result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return All submissions, in submission order, with regrades applied.
+     */
+    public synchronized List<TestResult> getAllResults() {
+        List<TestResult> results = new ArrayList<>(submissions.size());
+        for (Submission submission : submissions.values()) {
+            results.add(submission.result);
+        }
+        return results;
+    }
+
+    // IDs the dictionary has never seen have no group; a null key finds none.
+    private static Long pairKeyOf(String first, String second) {
+        int firstKey = IdDictionary.lookup(first);
+        int secondKey = IdDictionary.lookup(second);
+        return (firstKey < 0 || secondKey < 0) ? null : IdDictionary.pairKey(firstKey, secondKey);
+    }
+
+    private static <K> GradeAggregate aggregateOf(Map<K, Group> groups, K key) {
+        Group group = groups.get(key);
+        return (group != null) ? group.aggregate.copy() : new GradeAggregate();
+    }
+
+    private static <K> Group groupFor(Map<K, Group> groups, K key) {
+        return groups.computeIfAbsent(key, k -> new Group());
+    }
+
+    private String chapterOf(String testId) {
+        if (index == null || !index.containsTest(testId)) {
+            // Unknown test: pick up tests created since the index was built.
+            List<Test> tests = SerializationUtil.readFromFile(TESTS_PATH);
+            if (tests != null && tests != indexedTests) {
+                index = new GradeIndex(tests);
+                indexedTests = tests;
+            }
+        }
+        return (index != null) ? index.chapterOf(testId) : null;
+    }
+
+    private static String keyOf(TestResult tr) {
+        return tr.getTestId() + '\0' + tr.getStudentId() + '\0' + tr.getSubmissionTime();
+    }
+}
@@ -0,0 +1,189 @@
+package utils.log;
+
+import model.subject.TestResult;
+import utils.EntityCache;
+import utils.GroupCommitWriter;
+import utils.SerializationUtil;
+import utils.tx.Transaction;
+import utils.tx.TransactionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stores submitted test results as a snapshot file plus an append-only log.
+ * A submission only appends its own record to the log; readers replay the log
+ * on top of the snapshot, and {@link #compact()} folds the log back into the
+ * snapshot once it grows large. The snapshot records how much of the log it
+ * covers (see {@link SubmissionSnapshot}), and readers skip those records.
+ */
+public class SubmissionLog {
+    static final String SNAPSHOT_PATH = "testResults.txt";
+    static final String LOG_PATH = "testResults.log";
+    // Compact once the log grows beyond this many bytes.
+    private static final long COMPACT_THRESHOLD_BYTES = 1024 * 1024;
+
+    private static final AppendLog log = AppendLog.forPath(LOG_PATH);
+
+    /**
+     * Appends a single submission to the log.
+     *
+     * @param result The submitted test result.
+     */
+    public static void append(TestResult result) {
+        try {
+            log.append(SerializationUtil.toBytes(result));
+        } catch (IOException e) {
+            System.err.println("Error appending submission to " + LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Adds a submission to a transaction, to be appended to the log when the
+     * transaction commits. Call {@link #compactIfNeeded()} after the commit.
+     *
+     * @param tx     The transaction.
+     * @param result The submitted test result.
+     * @return Whether the submission could be encoded.
+     */
+    public static boolean append(Transaction tx, TestResult result) {
+        try {
+            tx.append(LOG_PATH, SerializationUtil.toBytes(result));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error encoding submission for " + LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Compacts the log if it has grown beyond the threshold.
+     */
+    public static void compactIfNeeded() {
+        if (log.size() > COMPACT_THRESHOLD_BYTES) {
+            compact();
+        }
+    }
+
+    /**
+     * Reads all submissions: the snapshot followed by every record in the log.
+     *
+     * @return A list of all test results, in submission order.
+     */
+    public static ArrayList<TestResult> readAll() {
+        ArrayList<TestResult> results = new ArrayList<>();
+        try {
+            read(results);
+        } catch (IOException e) {
+            System.err.println("Error reading submissions from " + LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return results;
+    }
+
+    /**
+     * Reads the snapshot and the log records it does not cover, retrying if
+     * the log is compacted in the meantime.
+     *
+     * @param results Receives all test results, in submission order.
+     * @return The log chunk that was read, whose position readers that follow
+     *         the log resume from (see {@link #readLogFrom}).
+     */
+    static AppendLog.Chunk read(List<TestResult> results) throws IOException {
+        File snapshotFile = new File(SNAPSHOT_PATH);
+        while (true) {
+            EntityCache.Stamp stamp = EntityCache.stampOf(snapshotFile);
+            ArrayList<TestResult> snapshot = readSnapshot();
+            AppendLog.Chunk chunk = readUncovered(snapshot);
+            // Compaction replaces the snapshot before truncating the log, so
+            // an unchanged snapshot means the two were read consistently.
+            if (Objects.equals(stamp, EntityCache.stampOf(snapshotFile))) {
+                results.addAll(snapshot);
+                results.addAll(decode(chunk.getRecords()));
+                return chunk;
+            }
+        }
+    }
+
+    // Reads the log records not folded into the snapshot.
+    private static AppendLog.Chunk readUncovered(List<TestResult> snapshot) throws IOException {
+        if (snapshot instanceof SubmissionSnapshot) {
+            SubmissionSnapshot covered = (SubmissionSnapshot) snapshot;
+            // From the start if the log was truncated since.
+            return log.readFrom(covered.getLogGeneration(), covered.getLogEndOffset());
+        }
+        return log.readAll();
+    }
+
+    /**
+     * Folds the log into the snapshot file and truncates the log. Appends from
+     * other processes are blocked for the duration of the compaction.
+     */
+    public static void compact() {
+        // Holding the log's transaction lock: transactions appending to the
+        // log are completed first and wait until the truncation is done, so
+        // their appends are never replayed over the snapshot.
+        TransactionManager.getInstance().runExclusive(LOG_PATH, () -> {
+            try {
+                log.drain(chunk -> {
+                    if (chunk.getRecords().isEmpty()) {
+                        return false;
+                    }
+                    ArrayList<TestResult> snapshot = readSnapshot();
+                    // An earlier compaction may have stopped after writing the
+                    // snapshot; only fold in what it does not cover yet.
+                    List<byte[]> records = readUncovered(snapshot).getRecords();
+                    if (!records.isEmpty()) {
+                        snapshot.addAll(decode(records));
+                        // Write the snapshot directly so that a failed write
+                        // aborts the truncation instead of losing the logged
+                        // submissions. The atomic replace keeps the old
+                        // snapshot if the write is torn.
+                        GroupCommitWriter.getInstance().write(SNAPSHOT_PATH, SerializationUtil.toBytes(
+                                new SubmissionSnapshot(snapshot, chunk.getGeneration(), chunk.getEndOffset())));
+                    }
+                    return true;
+                });
+            } catch (IOException e) {
+                System.err.println("Error compacting " + LOG_PATH + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reads the log records appended since an earlier read, for readers that
+     * follow the log (see {@link Gradebook}). If the log was compacted since,
+     * the chunk is {@link AppendLog.Chunk#isReset() reset} and the reader has
+     * to start over with {@link #read}.
+     */
+    static AppendLog.Chunk readLogFrom(long generation, long offset) throws IOException {
+        return log.readFrom(generation, offset);
+    }
+
+    static ArrayList<TestResult> readSnapshot() {
+        // Copy, since the snapshot list may be shared through the entity cache.
+        ArrayList<TestResult> snapshot = SerializationUtil.readFromFile(SNAPSHOT_PATH);
+        if (snapshot instanceof SubmissionSnapshot) {
+            SubmissionSnapshot covered = (SubmissionSnapshot) snapshot;
+            return new SubmissionSnapshot(covered, covered.getLogGeneration(), covered.getLogEndOffset());
+        }
+        return (snapshot != null) ? new ArrayList<>(snapshot) : new ArrayList<>();
+    }
+
+    static List<TestResult> decode(List<byte[]> records) throws IOException {
+        List<TestResult> results = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            results.add(SerializationUtil.fromBytes(record));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,40 @@
+package utils.log;
+
+import model.subject.TestResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * The submissions folded into the snapshot file by
+ * {@link SubmissionLog#compact()}, together with how much of the log they
+ * cover: every record of the given log generation before the given offset.
+ * Readers skip those records, so a compaction interrupted between writing the
+ * snapshot and truncating the log does not count submissions twice.
+ */
+public class SubmissionSnapshot extends ArrayList<TestResult> {
+    private static final long serialVersionUID = 1L;
+
+    private final long logGeneration;
+    private final long logEndOffset;
+
+    /**
+     * @param results       The submissions.
+     * @param logGeneration The generation of the log the submissions were
+     *                      read from.
+     * @param logEndOffset  The log offset up to which they were read.
+     */
+    public SubmissionSnapshot(Collection<TestResult> results, long logGeneration, long logEndOffset) {
+        super(results);
+        this.logGeneration = logGeneration;
+        this.logEndOffset = logEndOffset;
+    }
+
+    public long getLogGeneration() {
+        return logGeneration;
+    }
+
+    public long getLogEndOffset() {
+        return logEndOffset;
+    }
+}
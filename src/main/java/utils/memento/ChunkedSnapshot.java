@@ -0,0 +1,106 @@
+package utils.memento;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a list, stored as fixed-size chunks. A snapshot taken
+ * with a previous snapshot as its base reuses every chunk whose elements are
+ * the same objects as before, so consecutive snapshots of a list that was
+ * edited in place or appended to only store the chunks that changed.
+ */
+final class ChunkedSnapshot<T> {
+    static final int CHUNK_SIZE = 32;
+    private static final Object[][] NO_CHUNKS = new Object[0][];
+
+    private final Object[][] chunks;
+    private final int size;
+    // Elements in chunks created for this snapshot rather than shared with its
+    // base.
+    private final int ownReferences;
+
+    private ChunkedSnapshot(Object[][] chunks, int size, int ownReferences) {
+        this.chunks = chunks;
+        this.size = size;
+        this.ownReferences = ownReferences;
+    }
+
+    /**
+     * @param list The list to snapshot; null is treated as empty.
+     * @param base A previous snapshot whose chunks may be reused, or null.
+     * @return The snapshot.
+     */
+    static <T> ChunkedSnapshot<T> of(List<T> list, ChunkedSnapshot<T> base) {
+        int size = (list != null) ? list.size() : 0;
+        if (base != null && base.size == size && base.sameElements(list)) {
+            return base;
+        }
+        int chunkCount = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Object[][] chunks = (chunkCount == 0) ? NO_CHUNKS : new Object[chunkCount][];
+        int ownReferences = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            int from = c * CHUNK_SIZE;
+            int length = Math.min(CHUNK_SIZE, size - from);
+            if (base != null && c < base.chunks.length && base.chunks[c].length == length
+                    && chunkMatches(base.chunks[c], list, from)) {
+                chunks[c] = base.chunks[c];
+            } else {
+                Object[] chunk = new Object[length];
+                for (int i = 0; i < length; i++) {
+                    chunk[i] = list.get(from + i);
+                }
+                chunks[c] = chunk;
+                ownReferences += length;
+            }
+        }
+        return new ChunkedSnapshot<>(chunks, size, ownReferences);
+    }
+
+    private static boolean chunkMatches(Object[] chunk, List<?> list, int from) {
+        for (int i = 0; i < chunk.length; i++) {
+            if (chunk[i] != list.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameElements(List<T> list) {
+        for (int c = 0; c < chunks.length; c++) {
+            if (!chunkMatches(chunks[c], list, c * CHUNK_SIZE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    ArrayList<T> toList() {
+        ArrayList<T> list = new ArrayList<>(size);
+        for (Object[] chunk : chunks) {
+            for (Object element : chunk) {
+                list.add((T) element);
+            }
+        }
+        return list;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of chunks, shared or not.
+     */
+    int chunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * @return The number of element references held by chunks that were not
+     *         shared with the base snapshot when this snapshot was taken.
+     */
+    int ownReferences() {
+        return ownReferences;
+    }
+}
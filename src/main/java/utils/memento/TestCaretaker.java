@@ -1,14 +1,85 @@
 package utils.memento;
 
+import model.subject.Test;
+import utils.SerializationUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Undo/redo history of test mementos, bounded by a number of steps and by an
+ * estimated in-memory size. When the history grows beyond the memory budget,
+ * the oldest states are compressed into a temporary file and read back when
+ * they are undone to; states beyond the step limit are dropped.
+ */
 public class TestCaretaker {
-    private final List<TestMemento> undoStack = new ArrayList<>();
-    private final List<TestMemento> redoStack = new ArrayList<>();
+    public static final int DEFAULT_MAX_STEPS = 200;
+    public static final long DEFAULT_MAX_IN_MEMORY_BYTES = 8L * 1024 * 1024;
+    // Rewrite the spill file once it holds more unused bytes than this and
+    // than it holds used ones.
+    private static final long SPILL_COMPACT_MIN_BYTES = 256 * 1024;
+
+    private final int maxSteps;
+    private final long maxInMemoryBytes;
+    // Oldest first; spilled entries always come before the in-memory ones.
+    private final List<Entry> undoStack = new ArrayList<>();
+    private final List<Entry> redoStack = new ArrayList<>();
+    private long inMemoryBytes;
+    private long spilledBytes;
+    private int spilledCount;
+    private File spillFile;
+    // Length of the spill file, and how much of it undo entries still use.
+    private long spillFileBytes;
+    private long liveSpillBytes;
+
+    // A history entry: the memento itself and/or its location in the spill
+    // file. Mementos never change, so an entry that was read back from the
+    // file keeps its location and can be spilled again without rewriting it.
+    private static class Entry {
+        private TestMemento memento;
+        private long bytes;
+        // Whether bytes counts chunks shared with the previous entry.
+        private boolean fullEstimate;
+        private long offset;
+        // 0 if the entry has no copy in the spill file.
+        private int length;
+    }
+
+    public TestCaretaker() {
+        this(DEFAULT_MAX_STEPS, DEFAULT_MAX_IN_MEMORY_BYTES);
+    }
+
+    /**
+     * @param maxSteps         The maximum number of undo steps kept.
+     * @param maxInMemoryBytes The estimated memory budget before older states
+     *                         are spilled to disk.
+     */
+    public TestCaretaker(int maxSteps, long maxInMemoryBytes) {
+        if (maxSteps < 1) {
+            throw new IllegalArgumentException("maxSteps must be at least 1");
+        }
+        this.maxSteps = maxSteps;
+        this.maxInMemoryBytes = maxInMemoryBytes;
+    }
 
     public void saveState(TestMemento memento) {
-        undoStack.add(memento);
+        Entry entry = new Entry();
+        entry.memento = memento;
+        entry.bytes = memento.estimatedBytes();
+        undoStack.add(entry);
+        inMemoryBytes += entry.bytes;
+        while (undoStack.size() > maxSteps) {
+            drop(undoStack.remove(0));
+        }
+        chargeOldest();
+        enforceBudget();
     }
 
     // Allow undo only if there is more than one state (i.e. a previous state
@@ -20,9 +91,23 @@ public class TestCaretaker {
     public TestMemento undo() {
         if (!canUndo())
             return null;
-        TestMemento current = undoStack.remove(undoStack.size() - 1);
+        Entry current = undoStack.remove(undoStack.size() - 1);
+        releaseSpillCopy(current);
         redoStack.add(current);
-        return undoStack.get(undoStack.size() - 1);
+        Entry previous = undoStack.get(undoStack.size() - 1);
+        if (previous.memento == null && !pageIn(previous)) {
+            // The spilled history is unreadable; keep only what is in memory.
+            undoStack.clear();
+            resetSpill();
+            undoStack.add(current);
+            redoStack.remove(redoStack.size() - 1);
+            inMemoryBytes = current.bytes;
+            for (Entry entry : redoStack) {
+                inMemoryBytes += entry.bytes;
+            }
+            return null;
+        }
+        return previous.memento;
     }
 
     public boolean canRedo() {
@@ -32,17 +117,219 @@ public class TestCaretaker {
     public TestMemento redo() {
         if (!canRedo())
             return null;
-        TestMemento memento = redoStack.remove(redoStack.size() - 1);
-        undoStack.add(memento);
-        return memento;
+        // Still counted in inMemoryBytes while on the redo stack.
+        Entry entry = redoStack.remove(redoStack.size() - 1);
+        undoStack.add(entry);
+        enforceBudget();
+        return entry.memento;
     }
 
     public void clear() {
         undoStack.clear();
         redoStack.clear();
+        inMemoryBytes = 0;
+        resetSpill();
     }
 
     public void clearRedo() {
+        for (Entry entry : redoStack) {
+            inMemoryBytes -= entry.bytes;
+        }
         redoStack.clear();
     }
+
+    /**
+     * @return The number of undo and redo steps currently kept.
+     */
+    public int getStepCount() {
+        return undoStack.size() + redoStack.size();
+    }
+
+    /**
+     * @return The number of steps currently spilled to disk.
+     */
+    public int getSpilledStepCount() {
+        return spilledCount;
+    }
+
+    /**
+     * @return The estimated heap used by the in-memory history, in bytes.
+     */
+    public long getInMemoryBytes() {
+        return inMemoryBytes;
+    }
+
+    /**
+     * @return The compressed size of the spilled history, in bytes.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    // Spills the oldest in-memory states until the history fits the budget,
+    // always keeping the current state in memory.
+    private void enforceBudget() {
+        while (inMemoryBytes > maxInMemoryBytes && spilledCount < undoStack.size() - 1) {
+            if (!spill(undoStack.get(spilledCount))) {
+                return;
+            }
+            chargeOldest();
+        }
+    }
+
+    // The oldest in-memory entry no longer shares chunks with an in-memory
+    // predecessor, so it alone keeps them alive: count them in its estimate.
+    private void chargeOldest() {
+        if (spilledCount >= undoStack.size()) {
+            return;
+        }
+        Entry oldest = undoStack.get(spilledCount);
+        if (!oldest.fullEstimate) {
+            long bytes = oldest.memento.estimatedBytes(true);
+            inMemoryBytes += bytes - oldest.bytes;
+            oldest.bytes = bytes;
+            oldest.fullEstimate = true;
+        }
+    }
+
+    private boolean spill(Entry entry) {
+        try {
+            if (entry.length == 0) {
+                byte[] compressed = compress(SerializationUtil.toBytes(entry.memento.getState()));
+                if (spillFileBytes - liveSpillBytes > Math.max(SPILL_COMPACT_MIN_BYTES, liveSpillBytes)) {
+                    compactSpill();
+                }
+                if (spillFile == null) {
+                    spillFile = File.createTempFile("test-undo-", ".gz");
+                    spillFile.deleteOnExit();
+                }
+                try (RandomAccessFile file = new RandomAccessFile(spillFile, "rw")) {
+                    file.seek(spillFileBytes);
+                    file.write(compressed);
+                }
+                entry.offset = spillFileBytes;
+                entry.length = compressed.length;
+                spillFileBytes += entry.length;
+                liveSpillBytes += entry.length;
+            }
+            entry.memento = null;
+            inMemoryBytes -= entry.bytes;
+            spilledBytes += entry.length;
+            spilledCount++;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error spilling undo history to disk: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private boolean pageIn(Entry entry) {
+        try (RandomAccessFile file = new RandomAccessFile(spillFile, "r")) {
+            byte[] compressed = new byte[entry.length];
+            file.seek(entry.offset);
+            file.readFully(compressed);
+            Test state = SerializationUtil.fromBytes(decompress(compressed));
+            // Decoded afresh, so it shares nothing with the entries after it.
+            entry.memento = new TestMemento(state);
+            entry.bytes = entry.memento.estimatedBytes(true);
+            entry.fullEstimate = true;
+            inMemoryBytes += entry.bytes;
+            spilledBytes -= entry.length;
+            spilledCount--;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error reading undo history from disk: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void drop(Entry entry) {
+        if (entry.memento != null) {
+            inMemoryBytes -= entry.bytes;
+        } else {
+            spilledBytes -= entry.length;
+            spilledCount--;
+        }
+        releaseSpillCopy(entry);
+    }
+
+    private void releaseSpillCopy(Entry entry) {
+        liveSpillBytes -= entry.length;
+        entry.length = 0;
+    }
+
+    // Rewrites the spill file with only the copies still in use; on failure
+    // the old file stays in use.
+    private void compactSpill() {
+        if (liveSpillBytes == 0) {
+            spillFile.delete();
+            spillFile = null;
+            spillFileBytes = 0;
+            return;
+        }
+        long[] offsets = new long[undoStack.size()];
+        long position = 0;
+        File compacted = null;
+        try {
+            compacted = File.createTempFile("test-undo-", ".gz");
+            compacted.deleteOnExit();
+            try (RandomAccessFile in = new RandomAccessFile(spillFile, "r");
+                    RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+                for (int i = 0; i < undoStack.size(); i++) {
+                    Entry entry = undoStack.get(i);
+                    if (entry.length > 0) {
+                        byte[] compressed = new byte[entry.length];
+                        in.seek(entry.offset);
+                        in.readFully(compressed);
+                        out.write(compressed);
+                        offsets[i] = position;
+                        position += entry.length;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting undo history on disk: " + e.getMessage());
+            e.printStackTrace();
+            if (compacted != null) {
+                compacted.delete();
+            }
+            return;
+        }
+        for (int i = 0; i < undoStack.size(); i++) {
+            undoStack.get(i).offset = offsets[i];
+        }
+        spillFile.delete();
+        spillFile = compacted;
+        spillFileBytes = position;
+    }
+
+    private void resetSpill() {
+        if (spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+        for (Entry entry : undoStack) {
+            entry.length = 0;
+        }
+        spilledBytes = 0;
+        spilledCount = 0;
+        spillFileBytes = 0;
+        liveSpillBytes = 0;
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gzip.readAllBytes();
+        }
+    }
 }
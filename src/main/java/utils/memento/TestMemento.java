@@ -1,15 +1,92 @@
 package utils.memento;
 
+import model.subject.Question;
 import model.subject.Test;
+import model.subject.TestResult;
 
+/**
+ * Snapshot of a test's state. The questions and results are kept as
+ * {@link ChunkedSnapshot}s that share unchanged chunks with the previous
+ * memento, so an undo step that only edits the title or start time costs a
+ * few fields instead of a copy of every list.
+ */
 public class TestMemento {
-    private final Test state;
+    private final String id;
+    private final String chapterId;
+    private final String title;
+    private final String startTime;
+    private final int duration;
+    private final long version;
+    private final ChunkedSnapshot<Question> questions;
+    private final ChunkedSnapshot<TestResult> testResults;
 
     public TestMemento(Test state) {
-        this.state = state.copy();
+        this(state, null);
     }
 
+    /**
+     * @param state    The state to save.
+     * @param previous The previously saved memento of the same test, whose
+     *                 unchanged parts are shared; may be null.
+     */
+    public TestMemento(Test state, TestMemento previous) {
+        this.id = state.getId();
+        this.chapterId = state.getChapterId();
+        this.title = state.getTitle();
+        this.startTime = state.getStartTime();
+        this.duration = state.getDuration();
+        this.version = state.getVersion();
+        boolean related = previous != null && previous.id.equals(id);
+        this.questions = ChunkedSnapshot.of(state.getQuestions(), related ? previous.questions : null);
+        this.testResults = ChunkedSnapshot.of(state.getTestResults(), related ? previous.testResults : null);
+    }
+
+    /**
+     * Estimates the heap used by this memento, not counting the questions and
+     * results themselves (which are shared with the test) or chunks shared
+     * with earlier mementos.
+     *
+     * @return The estimated size in bytes.
+     */
+    long estimatedBytes() {
+        return estimatedBytes(false);
+    }
+
+    /**
+     * @param includeShared Whether to count the chunks shared with earlier
+     *                      mementos too, e.g. once those are no longer in
+     *                      memory and this memento is all that keeps the
+     *                      chunks alive.
+     * @return The estimated size in bytes.
+     */
+    long estimatedBytes(boolean includeShared) {
+        long bytes = 64;
+        bytes += stringBytes(id) + stringBytes(chapterId) + stringBytes(title) + stringBytes(startTime);
+        if (includeShared) {
+            bytes += referenceBytes(questions.size()) + referenceBytes(testResults.size());
+        } else {
+            bytes += referenceBytes(questions.ownReferences()) + referenceBytes(testResults.ownReferences());
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return (s != null) ? 40 + s.length() : 0;
+    }
+
+    private static long referenceBytes(int references) {
+        int chunks = (references + ChunkedSnapshot.CHUNK_SIZE - 1) / ChunkedSnapshot.CHUNK_SIZE;
+        return 8L * references + 16L * chunks;
+    }
+
+    /**
+     * @return A new Test holding the saved state.
+     */
     public Test getState() {
-        return state;
+        Test test = new Test(id, chapterId, title, startTime, duration);
+        test.setVersion(version);
+        test.getQuestions().addAll(questions.toList());
+        test.getTestResults().addAll(testResults.toList());
+        return test;
     }
 }
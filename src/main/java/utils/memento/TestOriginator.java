@@ -4,6 +4,8 @@ import model.subject.Test;
 
 public class TestOriginator {
     private Test state;
+    // Last memento saved or restored, which the next memento shares with.
+    private TestMemento lastMemento;
 
     public void setState(Test state) {
         this.state = state.copy();
@@ -14,10 +16,13 @@ public class TestOriginator {
     }
 
     public TestMemento saveStateToMemento() {
-        return new TestMemento(state);
+        lastMemento = new TestMemento(state, lastMemento);
+        return lastMemento;
     }
 
     public void restoreState(TestMemento memento) {
-        state = memento.getState().copy();
+        // getState() already builds a fresh Test, so no further copy is needed.
+        state = memento.getState();
+        lastMemento = memento;
     }
 }
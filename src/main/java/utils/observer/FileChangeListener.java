@@ -0,0 +1,9 @@
+package utils.observer;
+
+/**
+ * Callback for changes to a data file. Called on a background thread, so
+ * Swing listeners should hand off to the EDT with SwingUtilities.invokeLater.
+ */
+public interface FileChangeListener {
+    void fileChanged(String filePath);
+}
@@ -0,0 +1,229 @@
+package utils.observer;
+
+import model.subject.Chapter;
+import model.subject.Group;
+import model.subject.Material;
+import model.subject.Session;
+import model.subject.Subject;
+import model.subject.Test;
+import model.subject.TestResult;
+import model.user.User;
+import utils.EntityCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single process-wide change-notification service for data files, built on a
+ * {@link WatchService} over the data directory. Components subscribe to a file
+ * (or to the entity type stored in it) and are called back only when the file
+ * actually changes, instead of re-reading it on a timer.
+ *
+ * Saves made by this process are also reported directly through
+ * {@link #fireChanged(String)}, so local listeners do not wait for the file
+ * system event. Each change is delivered once per new file version.
+ *
+ * Listeners run one at a time on a dispatch thread of their own, never on the
+ * thread that wrote the file, so a slow listener cannot hold up a save.
+ */
+public class FileChangeWatcher {
+    // Time to wait for further events after the first one, so that a save that
+    // produces several modify events is delivered as a single change.
+    private static final long SETTLE_MILLIS = 20;
+
+    private static final Map<Class<?>, String> ENTITY_FILES = new HashMap<>();
+
+    static {
+        ENTITY_FILES.put(User.class, "users.txt");
+        ENTITY_FILES.put(Subject.class, "subjects.txt");
+        ENTITY_FILES.put(Chapter.class, "chapters.txt");
+        ENTITY_FILES.put(Group.class, "groups.txt");
+        ENTITY_FILES.put(Material.class, "materials.txt");
+        ENTITY_FILES.put(Test.class, "tests.txt");
+        ENTITY_FILES.put(Session.class, "sessions.txt");
+        ENTITY_FILES.put(TestResult.class, "testResults.log");
+    }
+
+    private static final Map<Path, List<FileChangeListener>> listeners = new ConcurrentHashMap<>();
+    // Stamp of each file at the time its listeners were last notified.
+    private static final Map<Path, Object> notifiedStamps = new ConcurrentHashMap<>();
+    private static final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "file-change-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static WatchService watchService;
+    private static Thread watcherThread;
+
+    /**
+     * Handle returned by the subscribe methods.
+     */
+    public static class Subscription {
+        private final Path path;
+        private final FileChangeListener listener;
+
+        private Subscription(Path path, FileChangeListener listener) {
+            this.path = path;
+            this.listener = listener;
+        }
+
+        /**
+         * Stops delivering changes to this subscription's listener.
+         */
+        public void cancel() {
+            List<FileChangeListener> fileListeners = listeners.get(path);
+            if (fileListeners != null) {
+                fileListeners.remove(listener);
+            }
+        }
+    }
+
+    /**
+     * Subscribes to changes of a data file.
+     *
+     * @param filePath The file to watch.
+     * @param listener The callback, run on a background thread.
+     * @return A handle to cancel the subscription.
+     */
+    public static Subscription subscribe(String filePath, FileChangeListener listener) {
+        Path path = normalize(filePath);
+        notifiedStamps.computeIfAbsent(path, p -> stampOrMissing(p));
+        listeners.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>()).add(listener);
+        watchDirectory(path.getParent());
+        return new Subscription(path, listener);
+    }
+
+    /**
+     * Subscribes to changes of the file storing the given entity type.
+     *
+     * @param entityType An entity class, e.g. {@code Session.class}.
+     * @param listener   The callback, run on a background thread.
+     * @return A handle to cancel the subscription.
+     */
+    public static Subscription subscribe(Class<?> entityType, FileChangeListener listener) {
+        for (Map.Entry<Class<?>, String> entry : ENTITY_FILES.entrySet()) {
+            if (entry.getKey().isAssignableFrom(entityType)) {
+                return subscribe(entry.getValue(), listener);
+            }
+        }
+        throw new IllegalArgumentException("No data file registered for " + entityType.getName());
+    }
+
+    /**
+     * Reports that this process has just written a file, notifying its
+     * listeners without waiting for the file system event. Returns without
+     * waiting for the listeners.
+     *
+     * @param filePath The file that was written.
+     */
+    public static void fireChanged(String filePath) {
+        Path path = normalize(filePath);
+        if (listeners.containsKey(path)) {
+            dispatcher.execute(() -> notifyIfChanged(path));
+        }
+    }
+
+    private static void notifyIfChanged(Path path) {
+        Object stamp = stampOrMissing(path);
+        Object previous = notifiedStamps.put(path, stamp);
+        if (Objects.equals(previous, stamp)) {
+            return;
+        }
+        List<FileChangeListener> fileListeners = listeners.get(path);
+        if (fileListeners == null) {
+            return;
+        }
+        String filePath = path.toString();
+        for (FileChangeListener listener : fileListeners) {
+            try {
+                listener.fileChanged(filePath);
+            } catch (RuntimeException e) {
+                System.err.println("Error in change listener for " + filePath + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static synchronized void watchDirectory(Path directory) {
+        if (watchedDirectories.contains(directory)) {
+            return;
+        }
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                watcherThread = new Thread(FileChangeWatcher::run, "data-file-watcher");
+                watcherThread.setDaemon(true);
+                watcherThread.start();
+            }
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.add(directory);
+        } catch (IOException e) {
+            System.err.println("Error watching " + directory + " for changes: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                WatchKey key = watchService.take();
+                // Gather everything that arrives while the writer settles.
+                while (key != null) {
+                    collect(key, changed);
+                    key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                for (Path path : changed) {
+                    dispatcher.execute(() -> notifyIfChanged(path));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down.
+        }
+    }
+
+    private static void collect(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost; let every listened file re-check its stamp.
+                changed.addAll(listeners.keySet());
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (listeners.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    private static Object stampOrMissing(Path path) {
+        EntityCache.Stamp stamp = EntityCache.stampOf(path.toFile());
+        return (stamp != null) ? stamp : "missing";
+    }
+
+    private static Path normalize(String filePath) {
+        return new File(filePath).getAbsoluteFile().toPath().normalize();
+    }
+}
@@ -0,0 +1,194 @@
+package utils.observer;
+
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single process-wide scheduler for periodic refresh work, replacing one
+ * {@link java.util.Timer} thread per window. Each task runs at an adaptive
+ * interval: while it reports no change the interval doubles, up to a maximum,
+ * and it drops back to the minimum as soon as something changes. Tasks
+ * registered for a window are cancelled when the window is closed.
+ *
+ * Tasks run on the scheduler's background thread, so Swing updates must be
+ * handed to the EDT.
+ */
+public class RefreshScheduler {
+    private static RefreshScheduler defaultScheduler;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<Handle> active = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A unit of refresh work.
+     */
+    public interface Task {
+        /**
+         * Checks for and applies new data.
+         *
+         * @return Whether anything changed since the previous run.
+         */
+        boolean refresh();
+    }
+
+    /**
+     * Handle returned by the schedule methods.
+     */
+    public class Handle {
+        private final Task task;
+        private final long minMillis;
+        private final long maxMillis;
+        private long intervalMillis;
+        private ScheduledFuture<?> next;
+        // Incremented whenever a run is scheduled out of turn; only a run of
+        // the current generation schedules the next one, so there is never
+        // more than one chain of runs.
+        private long generation;
+        private boolean cancelled;
+
+        private Handle(Task task, long minMillis, long maxMillis) {
+            this.task = task;
+            this.minMillis = minMillis;
+            this.maxMillis = maxMillis;
+            this.intervalMillis = minMillis;
+        }
+
+        /**
+         * Runs the task as soon as possible and resets its interval to the
+         * minimum, e.g. when the user asks for a refresh.
+         */
+        public synchronized void refreshNow() {
+            if (cancelled) {
+                return;
+            }
+            next.cancel(false);
+            intervalMillis = minMillis;
+            long current = ++generation;
+            next = executor.schedule(() -> run(current), 0, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Stops running the task.
+         */
+        public synchronized void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            next.cancel(false);
+            active.remove(this);
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return The delay before the next run, in milliseconds.
+         */
+        public synchronized long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        private synchronized void start(long delayMillis) {
+            long current = generation;
+            next = executor.schedule(() -> run(current), delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void run(long runGeneration) {
+            synchronized (this) {
+                if (cancelled || runGeneration != generation) {
+                    return;
+                }
+            }
+            boolean changed = true;
+            try {
+                changed = task.refresh();
+            } catch (RuntimeException e) {
+                System.err.println("Error in refresh task: " + e.getMessage());
+                e.printStackTrace();
+            }
+            synchronized (this) {
+                // Superseded by refreshNow() while the task was running.
+                if (cancelled || runGeneration != generation) {
+                    return;
+                }
+                intervalMillis = changed ? minMillis : Math.min(maxMillis, intervalMillis * 2);
+                next = executor.schedule(() -> run(runGeneration), intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public RefreshScheduler() {
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "refresh-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Cancelled runs are dropped from the queue instead of lingering until due.
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return The scheduler shared by the application's windows.
+     */
+    public static synchronized RefreshScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new RefreshScheduler();
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Schedules a task, running it once straight away.
+     *
+     * @param task      The refresh work.
+     * @param minMillis The interval while the task reports changes.
+     * @param maxMillis The longest interval to back off to.
+     * @return A handle to cancel the task.
+     */
+    public Handle schedule(Task task, long minMillis, long maxMillis) {
+        if (minMillis <= 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Invalid refresh interval " + minMillis + ".." + maxMillis);
+        }
+        Handle handle = new Handle(task, minMillis, maxMillis);
+        active.add(handle);
+        handle.start(0);
+        return handle;
+    }
+
+    /**
+     * Schedules a task for as long as a window is open; the task is cancelled
+     * when the window is closed or disposed.
+     *
+     * @param window    The window the task refreshes.
+     * @param task      The refresh work.
+     * @param minMillis The interval while the task reports changes.
+     * @param maxMillis The longest interval to back off to.
+     * @return A handle to cancel the task earlier.
+     */
+    public Handle scheduleWhileOpen(Window window, Task task, long minMillis, long maxMillis) {
+        Handle handle = schedule(task, minMillis, maxMillis);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                handle.cancel();
+                window.removeWindowListener(this);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * @return The number of scheduled tasks that have not been cancelled.
+     */
+    public int getActiveTaskCount() {
+        return active.size();
+    }
+}
@@ -0,0 +1,194 @@
+package utils.observer;
+
+import model.subject.Session;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers session events to {@link SessionObserver}s on a background thread
+ * instead of inside the call that changed the session. Events for the same
+ * session arriving within a short window are coalesced into a single update,
+ * e.g. "12 students joined the session: ...", and a student who joins and
+ * leaves within the window cancels out. Pending deliveries are bounded; when
+ * observers fall behind, the oldest batches are dropped.
+ */
+public class SessionEventDispatcher {
+    public static final long DEFAULT_WINDOW_MILLIS = 500;
+    public static final int DEFAULT_MAX_PENDING_DELIVERIES = 64;
+    // Free-form messages kept per batch; older ones are merged into a count.
+    private static final int MAX_MESSAGES_PER_BATCH = 10;
+
+    private static SessionEventDispatcher defaultDispatcher;
+
+    private final long windowMillis;
+    private final ScheduledExecutorService flusher;
+    private final ThreadPoolExecutor deliverer;
+    private final Map<String, Batch> pending = new LinkedHashMap<>();
+
+    // Events collected for one session during the current window.
+    private static class Batch {
+        private Session session;
+        private final Set<SessionObserver> observers = new LinkedHashSet<>();
+        private final Set<String> joined = new LinkedHashSet<>();
+        private final Set<String> left = new LinkedHashSet<>();
+        private final Deque<String> messages = new ArrayDeque<>();
+        private int droppedMessages;
+    }
+
+    /**
+     * @param windowMillis          How long to collect events for a session
+     *                              before delivering them.
+     * @param maxPendingDeliveries The maximum number of batches waiting for
+     *                              delivery.
+     */
+    public SessionEventDispatcher(long windowMillis, int maxPendingDeliveries) {
+        this.windowMillis = windowMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(daemonThreads("session-events-flush"));
+        this.deliverer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPendingDeliveries), daemonThreads("session-events"),
+                (task, executor) -> {
+                    // Drop the stalest batch to make room for the newest one.
+                    executor.getQueue().poll();
+                    System.err.println("Session event queue full; dropped the oldest pending notification.");
+                    executor.execute(task);
+                });
+    }
+
+    /**
+     * @return The dispatcher used by {@link Session}.
+     */
+    public static synchronized SessionEventDispatcher getDefault() {
+        if (defaultDispatcher == null) {
+            defaultDispatcher = new SessionEventDispatcher(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_PENDING_DELIVERIES);
+        }
+        return defaultDispatcher;
+    }
+
+    /**
+     * Reports that a student joined a session.
+     *
+     * @param session   The session.
+     * @param observers The session's observers at the time of the event.
+     * @param studentId The student ID.
+     */
+    public synchronized void studentJoined(Session session, List<SessionObserver> observers, String studentId) {
+        Batch batch = batchFor(session, observers);
+        if (!batch.left.remove(studentId)) {
+            batch.joined.add(studentId);
+        }
+    }
+
+    /**
+     * Reports that a student left a session.
+     *
+     * @param session   The session.
+     * @param observers The session's observers at the time of the event.
+     * @param studentId The student ID.
+     */
+    public synchronized void studentLeft(Session session, List<SessionObserver> observers, String studentId) {
+        Batch batch = batchFor(session, observers);
+        if (!batch.joined.remove(studentId)) {
+            batch.left.add(studentId);
+        }
+    }
+
+    /**
+     * Reports a free-form notification for a session. Repeats of a message
+     * already pending in the window are merged.
+     *
+     * @param session   The session.
+     * @param observers The session's observers at the time of the event.
+     * @param message   The notification text.
+     */
+    public synchronized void message(Session session, List<SessionObserver> observers, String message) {
+        Batch batch = batchFor(session, observers);
+        if (batch.messages.contains(message)) {
+            return;
+        }
+        if (batch.messages.size() == MAX_MESSAGES_PER_BATCH) {
+            batch.messages.removeFirst();
+            batch.droppedMessages++;
+        }
+        batch.messages.addLast(message);
+    }
+
+    private Batch batchFor(Session session, List<SessionObserver> observers) {
+        Batch batch = pending.get(session.getId());
+        if (batch == null) {
+            batch = new Batch();
+            pending.put(session.getId(), batch);
+            String sessionId = session.getId();
+            flusher.schedule(() -> flush(sessionId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        batch.session = session;
+        batch.observers.addAll(observers);
+        return batch;
+    }
+
+    private void flush(String sessionId) {
+        Batch batch;
+        synchronized (this) {
+            batch = pending.remove(sessionId);
+        }
+        if (batch == null) {
+            return;
+        }
+        String text = describe(batch);
+        if (text.isEmpty()) {
+            return;
+        }
+        List<SessionObserver> observers = new ArrayList<>(batch.observers);
+        Session session = batch.session;
+        deliverer.execute(() -> {
+            for (SessionObserver observer : observers) {
+                try {
+                    observer.update(session, text);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in session observer: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private static String describe(Batch batch) {
+        String title = batch.session.getTitle();
+        List<String> lines = new ArrayList<>();
+        if (batch.joined.size() == 1) {
+            lines.add("Student with ID " + batch.joined.iterator().next() + " has joined the session: " + title);
+        } else if (batch.joined.size() > 1) {
+            lines.add(batch.joined.size() + " students joined the session: " + title);
+        }
+        if (batch.left.size() == 1) {
+            lines.add("Student with ID " + batch.left.iterator().next() + " has left the session: " + title);
+        } else if (batch.left.size() > 1) {
+            lines.add(batch.left.size() + " students left the session: " + title);
+        }
+        if (batch.droppedMessages > 0) {
+            lines.add(batch.droppedMessages + " earlier notifications were merged.");
+        }
+        lines.addAll(batch.messages);
+        return String.join("\n", lines);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package utils.server;
+
+import model.subject.Message;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection to a {@link SessionServer}. Commands are sent with the methods
+ * below; events from the server are passed to a {@link Listener} on the
+ * client's reader thread.
+ */
+public class SessionClient implements Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 250;
+
+    private final Socket socket;
+    private final Writer writer;
+    private final Listener listener;
+    private volatile boolean closed;
+
+    /**
+     * Receives events from the server. Called on the client's reader thread, so
+     * Swing listeners should hand off to the EDT.
+     */
+    public interface Listener {
+        void participantJoined(String sessionId, String userId, String userName);
+
+        void participantLeft(String sessionId, String userId);
+
+        void participantRemoved(String sessionId, String userId);
+
+        /**
+         * @param journalOffset The message's offset in the session's chat
+         *                      journal, or -1 if it was not journaled.
+         */
+        void messageReceived(String sessionId, Message message, long journalOffset);
+
+        /**
+         * Called once when the connection ends, whether the server went away
+         * or {@link #close()} was called.
+         */
+        void disconnected();
+    }
+
+    private SessionClient(Socket socket, Listener listener) throws IOException {
+        this.socket = socket;
+        this.listener = listener;
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Connects to the session server on this machine, if one is running.
+     *
+     * @param listener The event listener.
+     * @return The client, or null if no server is reachable.
+     */
+    public static SessionClient connectIfAvailable(Listener listener) {
+        try {
+            return connect(InetAddress.getLoopbackAddress().getHostAddress(), SessionServer.configuredPort(),
+                    listener, null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Connects to a session server.
+     *
+     * @param host           The server host.
+     * @param port           The server port.
+     * @param listener       The event listener.
+     * @param readerExecutor Runs the reader loop; null for a dedicated daemon
+     *                       thread.
+     * @return The connected client.
+     */
+    public static SessionClient connect(String host, int port, Listener listener, Executor readerExecutor)
+            throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        SessionClient client = new SessionClient(socket, listener);
+        if (readerExecutor != null) {
+            readerExecutor.execute(client::readLoop);
+        } else {
+            Thread reader = new Thread(client::readLoop, "session-client");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return client;
+    }
+
+    /**
+     * Joins a session as the given user. The server binds the connection to
+     * this user; later commands on the connection act as them.
+     *
+     * @return Whether the command was sent; false if the connection is closed.
+     */
+    public boolean join(String sessionId, String userId, String userName) {
+        return send(SessionProtocol.line(SessionProtocol.JOIN, sessionId, userId, userName));
+    }
+
+    /**
+     * @return Whether the command was sent; false if the connection is closed.
+     */
+    public boolean leave(String sessionId, String userId) {
+        return send(SessionProtocol.line(SessionProtocol.LEAVE, sessionId, userId));
+    }
+
+    /**
+     * @return Whether the message was sent; false if the connection is closed,
+     *         in which case the caller should journal the message itself.
+     */
+    public boolean sendMessage(String sessionId, String userId, String userName, String content) {
+        return send(SessionProtocol.line(SessionProtocol.MESSAGE, sessionId, userId, userName, content));
+    }
+
+    /**
+     * Removes a participant from a session, e.g. a teacher removing a student.
+     * The server only accepts this from the session's teachers.
+     *
+     * @return Whether the command was sent; false if the connection is closed.
+     */
+    public boolean removeParticipant(String sessionId, String userId) {
+        return send(SessionProtocol.line(SessionProtocol.REMOVE, sessionId, userId));
+    }
+
+    /**
+     * @return Whether the connection is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    private boolean send(String line) {
+        synchronized (writer) {
+            if (closed) {
+                return false;
+            }
+            try {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error sending to session server: " + e.getMessage());
+                close();
+                return false;
+            }
+        }
+    }
+
+    private void readLoop() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    dispatch(SessionProtocol.fields(line));
+                } catch (RuntimeException e) {
+                    // A malformed event, or a failing listener: skip the line
+                    // rather than losing the connection.
+                    System.err.println("Error handling session server event \"" + line + "\": " + e);
+                }
+            }
+        } catch (IOException e) {
+            // Connection closed.
+        } finally {
+            closed = true;
+            listener.disconnected();
+        }
+    }
+
+    private void dispatch(List<String> fields) {
+        String event = fields.get(0);
+        switch (event) {
+            case SessionProtocol.JOINED:
+                listener.participantJoined(fields.get(1), fields.get(2), fields.get(3));
+                break;
+            case SessionProtocol.LEFT:
+                listener.participantLeft(fields.get(1), fields.get(2));
+                break;
+            case SessionProtocol.REMOVED:
+                listener.participantRemoved(fields.get(1), fields.get(2));
+                break;
+            case SessionProtocol.MESSAGE:
+                listener.messageReceived(fields.get(1), new Message(fields.get(3), fields.get(4), fields.get(5)),
+                        Long.parseLong(fields.get(2)));
+                break;
+            case SessionProtocol.ERROR:
+                System.err.println("Session server error: " + fields.get(1));
+                break;
+            default:
+                System.err.println("Unknown session server event " + event);
+        }
+    }
+}
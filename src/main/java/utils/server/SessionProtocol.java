@@ -0,0 +1,85 @@
+package utils.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format shared by {@link SessionServer} and {@link SessionClient}: one
+ * UTF-8 line per command or event, fields separated by tabs. Backslashes,
+ * tabs and line breaks inside fields are escaped.
+ *
+ * Client commands: JOIN session user name, LEAVE session user,
+ * MSG session user name content, REMOVE session user. The server acts on
+ * behalf of the user a connection first joined as (see {@link SessionServer}).
+ * Events a client cannot parse are skipped.
+ * Server events: JOINED session user name, LEFT session user,
+ * REMOVED session user, MSG session offset user name content, ERROR text.
+ */
+final class SessionProtocol {
+    static final String JOIN = "JOIN";
+    static final String LEAVE = "LEAVE";
+    static final String MESSAGE = "MSG";
+    static final String REMOVE = "REMOVE";
+    static final String JOINED = "JOINED";
+    static final String LEFT = "LEFT";
+    static final String REMOVED = "REMOVED";
+    static final String ERROR = "ERROR";
+
+    private SessionProtocol() {
+    }
+
+    static String line(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            escape(fields[i], line);
+        }
+        return line.toString();
+    }
+
+    static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package utils.server;
+
+import model.subject.Message;
+import model.subject.Session;
+import utils.SerializationUtil;
+import utils.log.ChatJournal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Embedded live-session server. Holds who is present in each session in
+ * memory and relays join, leave, removal and chat events between the
+ * participants' {@link SessionClient}s over a loopback TCP connection. Each
+ * connection has a reader and a writer (virtual, where available) thread;
+ * events are queued for the writer, so a client that stops reading holds up
+ * no one else, and is disconnected once its queue is full. Chat messages are
+ * also appended to the session's {@link ChatJournal}, so history survives the
+ * server and clients without a server keep working from the files.
+ *
+ * A connection acts as the user it first joined as: messages are sent under
+ * that user's name, and only the session's teachers may remove participants.
+ *
+ * Run headless with {@code java utils.server.SessionServer [port]}; the
+ * default port is {@value #DEFAULT_PORT}, or the {@value #PORT_PROPERTY}
+ * system property.
+ */
+public class SessionServer {
+    public static final int DEFAULT_PORT = 5055;
+    public static final String PORT_PROPERTY = "school.session.port";
+    private static final int BACKLOG = 1024;
+    // Events queued for a client before it counts as stalled.
+    private static final int OUTBOUND_LIMIT = 4096;
+    // Queued by close() to stop the connection's writer; compared by identity.
+    private static final String END_OF_OUTPUT = new String("end");
+    private static final String SESSIONS_PATH = "sessions.txt";
+
+    private final int requestedPort;
+    private final boolean persistMessages;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    // Participants present in one session.
+    private static class Room {
+        private final Map<Connection, Map<String, String>> members = new LinkedHashMap<>();
+    }
+
+    /**
+     * @param port            The port to listen on, or 0 for any free port.
+     * @param persistMessages Whether chat messages are appended to the
+     *                        session's chat journal.
+     */
+    public SessionServer(int port, boolean persistMessages) {
+        this.requestedPort = port;
+        this.persistMessages = persistMessages;
+    }
+
+    /**
+     * @return The port from the {@value #PORT_PROPERTY} system property, or the
+     *         default port.
+     */
+    public static int configuredPort() {
+        return Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+    }
+
+    /**
+     * Starts a journaling server on the configured port inside this process,
+     * unless another process on this machine is already serving it.
+     *
+     * @return The started server, or null if the port is taken.
+     */
+    public static SessionServer startEmbedded() {
+        SessionServer server = new SessionServer(configuredPort(), true);
+        try {
+            server.start();
+            return server;
+        } catch (IOException e) {
+            // Another instance hosts the sessions; its clients connect there.
+            return null;
+        }
+    }
+
+    /**
+     * Starts accepting connections on the loopback interface.
+     */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            return;
+        }
+        ServerSocket socket = new ServerSocket();
+        try {
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort), BACKLOG);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        serverSocket = socket;
+        executor = ConnectionExecutors.newPerConnectionExecutor("session-connection");
+        Thread acceptor = new Thread(this::acceptLoop, "session-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Session server listening on " + socket.getLocalSocketAddress()
+                + (ConnectionExecutors.usesVirtualThreads() ? " (virtual threads)" : " (thread pool)"));
+    }
+
+    /**
+     * Stops the server and closes every connection.
+     */
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Closing anyway.
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        executor.shutdownNow();
+        serverSocket = null;
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public synchronized int getPort() {
+        return (serverSocket != null) ? serverSocket.getLocalPort() : requestedPort;
+    }
+
+    /**
+     * @return The number of open client connections.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    private void acceptLoop() {
+        ServerSocket socket = serverSocket;
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                Connection connection = new Connection(client);
+                connections.add(connection);
+                connection.start();
+            } catch (SocketException e) {
+                // Server socket closed.
+                return;
+            } catch (IOException e) {
+                System.err.println("Error accepting session connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Connection connection, List<String> fields) {
+        String command = fields.get(0);
+        if (fields.size() < 3) {
+            connection.send(SessionProtocol.line(SessionProtocol.ERROR, "Malformed command " + command));
+            return;
+        }
+        String sessionId = fields.get(1);
+        String userId = fields.get(2);
+        if (command.equals(SessionProtocol.JOIN)) {
+            if (connection.userId == null) {
+                connection.userId = userId;
+                connection.userName = fields.size() > 3 ? fields.get(3) : userId;
+            }
+        }
+        if (connection.userId == null) {
+            connection.send(SessionProtocol.line(SessionProtocol.ERROR, command + " before JOIN"));
+            return;
+        }
+        switch (command) {
+            case SessionProtocol.JOIN:
+                if (!userId.equals(connection.userId)) {
+                    connection.send(SessionProtocol.line(SessionProtocol.ERROR,
+                            "Already joined as " + connection.userId));
+                    return;
+                }
+                join(connection, sessionId, connection.userId, connection.userName);
+                break;
+            case SessionProtocol.LEAVE:
+                leave(connection, sessionId, connection.userId);
+                break;
+            case SessionProtocol.MESSAGE:
+                if (fields.size() < 5 || !userId.equals(connection.userId)) {
+                    connection.send(SessionProtocol.line(SessionProtocol.ERROR, "Malformed message"));
+                    return;
+                }
+                message(sessionId, connection.userId, connection.userName, fields.get(4));
+                break;
+            case SessionProtocol.REMOVE:
+                if (!isTeacherOf(sessionId, connection.userId)) {
+                    connection.send(SessionProtocol.line(SessionProtocol.ERROR,
+                            "Only the session's teachers may remove participants"));
+                    return;
+                }
+                remove(sessionId, userId);
+                break;
+            default:
+                connection.send(SessionProtocol.line(SessionProtocol.ERROR, "Unknown command " + command));
+        }
+    }
+
+    // Whether the user is one of the session's teachers, as stored.
+    private static boolean isTeacherOf(String sessionId, String userId) {
+        ArrayList<Session> sessions = SerializationUtil.readFromFile(SESSIONS_PATH);
+        if (sessions == null) {
+            return false;
+        }
+        for (Session session : sessions) {
+            if (session.getId().equals(sessionId)) {
+                return session.getTeacherIds().contains(userId);
+            }
+        }
+        return false;
+    }
+
+    private void join(Connection connection, String sessionId, String userId, String userName) {
+        Room room = rooms.computeIfAbsent(sessionId, id -> new Room());
+        synchronized (room) {
+            // Tell the newcomer who is already here, then everyone about the
+            // newcomer.
+            for (Map<String, String> present : room.members.values()) {
+                for (Map.Entry<String, String> participant : present.entrySet()) {
+                    connection.send(SessionProtocol.line(SessionProtocol.JOINED, sessionId, participant.getKey(),
+                            participant.getValue()));
+                }
+            }
+            room.members.computeIfAbsent(connection, c -> new LinkedHashMap<>()).put(userId, userName);
+            broadcast(room, SessionProtocol.line(SessionProtocol.JOINED, sessionId, userId, userName));
+        }
+    }
+
+    private void leave(Connection connection, String sessionId, String userId) {
+        Room room = rooms.get(sessionId);
+        if (room == null) {
+            return;
+        }
+        synchronized (room) {
+            Map<String, String> present = room.members.get(connection);
+            if (present == null || present.remove(userId) == null) {
+                return;
+            }
+            if (present.isEmpty()) {
+                room.members.remove(connection);
+            }
+            broadcast(room, SessionProtocol.line(SessionProtocol.LEFT, sessionId, userId));
+        }
+    }
+
+    private void message(String sessionId, String userId, String userName, String content) {
+        Room room = rooms.computeIfAbsent(sessionId, id -> new Room());
+        synchronized (room) {
+            // Appending and broadcasting under the room lock keeps every
+            // participant's view in journal order.
+            long offset = persistMessages ? ChatJournal.append(sessionId, new Message(userId, userName, content))
+                    : -1;
+            broadcast(room, SessionProtocol.line(SessionProtocol.MESSAGE, sessionId, String.valueOf(offset), userId,
+                    userName, content));
+        }
+    }
+
+    private void remove(String sessionId, String userId) {
+        Room room = rooms.get(sessionId);
+        if (room == null) {
+            return;
+        }
+        synchronized (room) {
+            broadcast(room, SessionProtocol.line(SessionProtocol.REMOVED, sessionId, userId));
+            room.members.values().removeIf(present -> {
+                present.remove(userId);
+                return present.isEmpty();
+            });
+        }
+    }
+
+    private void disconnected(Connection connection) {
+        connections.remove(connection);
+        for (Map.Entry<String, Room> entry : rooms.entrySet()) {
+            Room room = entry.getValue();
+            synchronized (room) {
+                Map<String, String> present = room.members.remove(connection);
+                if (present != null) {
+                    for (String userId : present.keySet()) {
+                        broadcast(room, SessionProtocol.line(SessionProtocol.LEFT, entry.getKey(), userId));
+                    }
+                }
+            }
+        }
+    }
+
+    // Only queues the line for each member, so it is cheap under the room lock.
+    private static void broadcast(Room room, String line) {
+        for (Connection member : new ArrayList<>(room.members.keySet())) {
+            member.send(line);
+        }
+    }
+
+    private class Connection {
+        private final Socket socket;
+        private final Writer writer;
+        private final BlockingQueue<String> outbound = new LinkedBlockingQueue<>(OUTBOUND_LIMIT);
+        private volatile boolean closed;
+        // The user this connection joined as; set and read by its reader only.
+        private String userId;
+        private String userName;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        void start() {
+            executor.execute(this::serve);
+            executor.execute(this::writeLoop);
+        }
+
+        void serve() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        handle(this, SessionProtocol.fields(line));
+                    }
+                }
+            } catch (IOException e) {
+                // Connection dropped.
+            } finally {
+                close();
+                disconnected(this);
+            }
+        }
+
+        void send(String line) {
+            if (closed) {
+                return;
+            }
+            if (!outbound.offer(line)) {
+                System.err.println("Disconnecting stalled session client " + socket.getRemoteSocketAddress());
+                close();
+            }
+        }
+
+        // Writes queued events, flushing whenever the queue runs empty.
+        private void writeLoop() {
+            try {
+                while (true) {
+                    String line = outbound.take();
+                    if (line == END_OF_OUTPUT) {
+                        return;
+                    }
+                    writer.write(line);
+                    writer.write('\n');
+                    if (outbound.isEmpty()) {
+                        writer.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // Connection dropped.
+            } catch (InterruptedException e) {
+                // Server stopped.
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            outbound.clear();
+            outbound.offer(END_OF_OUTPUT);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    /**
+     * Runs the server headless until the process is stopped.
+     *
+     * @param args Optional port number.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : configuredPort();
+        SessionServer server = new SessionServer(port, true);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        Thread.currentThread().join();
+    }
+}
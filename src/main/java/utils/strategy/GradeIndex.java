@@ -0,0 +1,86 @@
+package utils.strategy;
+
+import model.subject.Chapter;
+import model.subject.Test;
+import model.subject.TestResult;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup index from test ID to chapter ID to subject ID, built once from the
+ * test and chapter lists so that grouping results is a hash lookup per result
+ * instead of a scan over all tests.
+ */
+public class GradeIndex {
+    private final Map<String, String> chapterByTest = new HashMap<>();
+    private final Map<String, String> subjectByChapter = new HashMap<>();
+
+    /**
+     * @param tests The tests whose results will be grouped.
+     */
+    public GradeIndex(List<Test> tests) {
+        this(tests, Collections.emptyList());
+    }
+
+    /**
+     * @param tests    The tests whose results will be grouped.
+     * @param chapters The chapters, for grouping by subject.
+     */
+    public GradeIndex(List<Test> tests, List<Chapter> chapters) {
+        // The first entry wins, as with a linear search.
+        for (Test t : tests) {
+            chapterByTest.putIfAbsent(t.getId(), t.getChapterId());
+        }
+        for (Chapter c : chapters) {
+            subjectByChapter.putIfAbsent(c.getId(), c.getSubjectId());
+        }
+    }
+
+    /**
+     * @param testId A test ID.
+     * @return The test's chapter ID, or null if the test is unknown.
+     */
+    public String chapterOf(String testId) {
+        return chapterByTest.get(testId);
+    }
+
+    /**
+     * @param testId A test ID.
+     * @return The subject ID of the test's chapter, or null if unknown.
+     */
+    public String subjectOf(String testId) {
+        String chapterId = chapterByTest.get(testId);
+        return (chapterId != null) ? subjectByChapter.get(chapterId) : null;
+    }
+
+    /**
+     * @return True if the test ID is in the index.
+     */
+    public boolean containsTest(String testId) {
+        return chapterByTest.containsKey(testId);
+    }
+
+    /**
+     * @return The number of indexed tests.
+     */
+    public int testCount() {
+        return chapterByTest.size();
+    }
+
+    /**
+     * @return A grouping level keyed by the result's chapter ID.
+     */
+    public GradeLevel chapterLevel() {
+        return (TestResult tr) -> chapterOf(tr.getTestId());
+    }
+
+    /**
+     * @return A grouping level keyed by the result's subject ID.
+     */
+    public GradeLevel subjectLevel() {
+        return (TestResult tr) -> subjectOf(tr.getTestId());
+    }
+}
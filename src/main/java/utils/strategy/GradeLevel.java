@@ -0,0 +1,18 @@
+package utils.strategy;
+
+import model.subject.TestResult;
+
+/**
+ * One level of a grade grouping: the key a test result is grouped under at
+ * that level, e.g. its student ID.
+ */
+public interface GradeLevel {
+    GradeLevel STUDENT = TestResult::getStudentId;
+    GradeLevel TEST = TestResult::getTestId;
+
+    /**
+     * @param result A test result.
+     * @return The group key, or null to leave the result out of the grouping.
+     */
+    String keyOf(TestResult result);
+}
@@ -0,0 +1,130 @@
+package utils.strategy;
+
+import model.subject.TestResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+ * Multi-level grouping of test results, e.g. subject, then chapter, then
+ * student, built in a single pass over the results. Inner nodes hold one
+ * child per key; the results themselves are kept at the leaves in the order
+ * they were given, also when the tree is collected in parallel.
+ */
+public class GradeTree {
+    private final Map<String, GradeTree> children = new HashMap<>();
+    private final List<TestResult> results = new ArrayList<>();
+
+    /**
+     * Groups results by the given levels in a single pass.
+     *
+     * @param testResults The results to group.
+     * @param levels      The levels, outermost first.
+     * @return The root of the tree.
+     */
+    public static GradeTree organize(List<TestResult> testResults, GradeLevel... levels) {
+        GradeTree root = new GradeTree();
+        for (TestResult tr : testResults) {
+            root.add(tr, levels);
+        }
+        return root;
+    }
+
+    /**
+     * Same as {@link #organize}, collecting partial trees for chunks of the
+     * results in parallel and merging them in order.
+     *
+     * @param testResults The results to group.
+     * @param levels      The levels, outermost first.
+     * @return The root of the tree.
+     */
+    public static GradeTree organizeParallel(List<TestResult> testResults, GradeLevel... levels) {
+        return testResults.parallelStream().collect(collector(levels));
+    }
+
+    /**
+     * @param levels The levels, outermost first.
+     * @return A collector grouping a stream of results into a tree.
+     */
+    public static Collector<TestResult, GradeTree, GradeTree> collector(GradeLevel... levels) {
+        GradeLevel[] copy = levels.clone();
+        return Collector.of(GradeTree::new, (tree, tr) -> tree.add(tr, copy), GradeTree::merge);
+    }
+
+    private void add(TestResult tr, GradeLevel[] levels) {
+        GradeTree node = this;
+        for (GradeLevel level : levels) {
+            String key = level.keyOf(tr);
+            if (key == null) {
+                return;
+            }
+            node = node.children.computeIfAbsent(key, k -> new GradeTree());
+        }
+        node.results.add(tr);
+    }
+
+    // Appends the other tree's results after this tree's, level by level.
+    private GradeTree merge(GradeTree other) {
+        results.addAll(other.results);
+        for (Map.Entry<String, GradeTree> entry : other.children.entrySet()) {
+            GradeTree child = children.get(entry.getKey());
+            if (child == null) {
+                children.put(entry.getKey(), entry.getValue());
+            } else {
+                child.merge(entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @param key A group key.
+     * @return The child group, or null if there is none.
+     */
+    public GradeTree getChild(String key) {
+        return children.get(key);
+    }
+
+    /**
+     * @return The child groups by key.
+     */
+    public Map<String, GradeTree> getChildren() {
+        return Collections.unmodifiableMap(children);
+    }
+
+    /**
+     * @return The results of a leaf group.
+     */
+    public List<TestResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * @return The results of every leaf under this node, in tree order.
+     */
+    public List<TestResult> getAllResults() {
+        List<TestResult> all = new ArrayList<>(results);
+        for (GradeTree child : children.values()) {
+            all.addAll(child.getAllResults());
+        }
+        return all;
+    }
+
+    /**
+     * Flattens the first level into the map shape returned by
+     * {@link GradeOrganizationStrategy#organizeGrades}.
+     *
+     * @return The results under each first-level key.
+     */
+    public Map<String, List<TestResult>> toMap() {
+        Map<String, List<TestResult>> map = new HashMap<>();
+        for (Map.Entry<String, GradeTree> entry : children.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().getAllResults());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,31 @@
+package utils.strategy;
+
+import model.subject.TestResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Organizes test results by a grouping level using a parallel collector, for
+ * large result sets. Produces the same groups, in the same order, as the
+ * sequential strategies.
+ */
+public class ParallelGradeOrganizationStrategy implements GradeOrganizationStrategy {
+    /** Below this many results the sequential strategies are just as fast. */
+    public static final int MIN_PARALLEL_RESULTS = 2000;
+
+    private final GradeLevel level;
+
+    /**
+     * @param level The level to group by, e.g. {@link GradeLevel#STUDENT} or
+     *              {@link GradeIndex#chapterLevel()}.
+     */
+    public ParallelGradeOrganizationStrategy(GradeLevel level) {
+        this.level = level;
+    }
+
+    @Override
+    public Map<String, List<TestResult>> organizeGrades(List<TestResult> testResults) {
+        return GradeTree.organizeParallel(testResults, level).toMap();
+    }
+}
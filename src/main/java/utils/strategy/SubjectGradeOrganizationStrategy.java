@@ -9,23 +9,66 @@ import java.util.*;
  */
 public class SubjectGradeOrganizationStrategy implements GradeOrganizationStrategy {
     private List<Test> tests;
+    private GradeIndex index;
+    // The (test ID, chapter ID) pairs the index was built from.
+    private String[] indexedTestIds;
+    private String[] indexedChapterIds;
 
     public SubjectGradeOrganizationStrategy(List<Test> tests) {
         this.tests = tests;
     }
 
+    /**
+     * Creates the strategy over an index shared with other strategies.
+     *
+     * @param index The test to chapter index.
+     */
+    public SubjectGradeOrganizationStrategy(GradeIndex index) {
+        this.index = index;
+    }
+
     @Override
     public Map<String, List<TestResult>> organizeGrades(List<TestResult> testResults) {
+        GradeIndex lookup = getIndex();
         Map<String, List<TestResult>> map = new HashMap<>();
-        // For each test result, find the corresponding test to extract its chapterId.
+        // Each result's chapterId is a lookup in the index built from the tests.
         for (TestResult tr : testResults) {
-            for (Test t : tests) {
-                if (t.getId().equals(tr.getTestId())) {
-                    map.computeIfAbsent(t.getChapterId(), k -> new ArrayList<>()).add(tr);
-                    break;
-                }
+            if (lookup.containsTest(tr.getTestId())) {
+                map.computeIfAbsent(lookup.chapterOf(tr.getTestId()), k -> new ArrayList<>()).add(tr);
             }
         }
         return map;
     }
+
+    /**
+     * @return The index, built on first use and rebuilt if the tests or their
+     *         chapters changed since.
+     */
+    public GradeIndex getIndex() {
+        if (tests != null && (index == null || isStale())) {
+            index = new GradeIndex(tests);
+            indexedTestIds = new String[tests.size()];
+            indexedChapterIds = new String[tests.size()];
+            for (int i = 0; i < tests.size(); i++) {
+                indexedTestIds[i] = tests.get(i).getId();
+                indexedChapterIds[i] = tests.get(i).getChapterId();
+            }
+        }
+        return index;
+    }
+
+    // A scan without hashing, much cheaper than rebuilding the index.
+    private boolean isStale() {
+        if (tests.size() != indexedTestIds.length) {
+            return true;
+        }
+        for (int i = 0; i < indexedTestIds.length; i++) {
+            Test t = tests.get(i);
+            if (!Objects.equals(t.getId(), indexedTestIds[i])
+                    || !Objects.equals(t.getChapterId(), indexedChapterIds[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,135 @@
+package utils.template;
+
+import model.subject.Test;
+import model.subject.TestResult;
+import utils.interpreter.ScoreTable;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exam processor that grades submissions in parallel on a ForkJoinPool. Scores
+ * and log output are identical to {@link StandardExamProcessor}: the log lines
+ * are built in submission order once grading is done.
+ *
+ * The overall average sums the scores in parallel chunks, so it rounds in a
+ * different order than the sequential sum and may differ from it in the last
+ * bits. Each sum of n scores between 0 and 100 is within n * 100n * 2^-53 of
+ * the exact sum, so the two averages differ by at most 200n * 2^-53, about
+ * 2e-8 for a million submissions. Only the average printed with two decimals
+ * can change, and only when it falls on a rounding boundary.
+ */
+public class ParallelExamProcessor extends StandardExamProcessor {
+    /** Below this many submissions the sequential processor is just as fast. */
+    public static final int MIN_PARALLEL_SUBMISSIONS = 2000;
+
+    // Number of submissions a single task grades without splitting further.
+    private static final int GRADE_CHUNK_SIZE = 256;
+    // Number of scores a single task sums without splitting further.
+    private static final int SUM_CHUNK_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+
+    public ParallelExamProcessor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool The pool to grade on.
+     */
+    public ParallelExamProcessor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Picks the processor to use for a test based on its number of submissions.
+     *
+     * @param test The test to process.
+     * @return A parallel processor for large tests, a sequential one otherwise.
+     */
+    public static StandardExamProcessor forTest(Test test) {
+        return (test.getTestResults().size() >= MIN_PARALLEL_SUBMISSIONS)
+                ? new ParallelExamProcessor()
+                : new StandardExamProcessor();
+    }
+
+    @Override
+    protected void gradeExam(Test test) {
+        List<TestResult> results = test.getTestResults();
+        ScoreTable scoreTable = ScoreTable.compile(gradingRule, test);
+        pool.invoke(new GradeTask(scoreTable, results, 0, results.size()));
+
+        // Formatting stays out of the parallel loop.
+        StringBuilder log = new StringBuilder();
+        for (TestResult tr : results) {
+            log.append(gradedLine(tr, tr.getScore())).append(System.lineSeparator());
+        }
+        System.out.print(log);
+    }
+
+    @Override
+    protected double sumScores(List<TestResult> results) {
+        return pool.invoke(new SumTask(results, 0, results.size()));
+    }
+
+    private class GradeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ScoreTable scoreTable;
+        private final List<TestResult> results;
+        private final int from;
+        private final int to;
+
+        GradeTask(ScoreTable scoreTable, List<TestResult> results, int from, int to) {
+            this.scoreTable = scoreTable;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRADE_CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    TestResult tr = results.get(i);
+                    tr.setScore(scoreSubmission(scoreTable, tr));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GradeTask(scoreTable, results, from, mid), new GradeTask(scoreTable, results, mid, to));
+        }
+    }
+
+    private static class SumTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<TestResult> results;
+        private final int from;
+        private final int to;
+
+        SumTask(List<TestResult> results, int from, int to) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= SUM_CHUNK_SIZE) {
+                double sum = 0.0;
+                for (int i = from; i < to; i++) {
+                    sum += results.get(i).getScore();
+                }
+                return sum;
+            }
+            int mid = (from + to) >>> 1;
+            SumTask right = new SumTask(results, mid, to);
+            right.fork();
+            double left = new SumTask(results, from, mid).compute();
+            return left + right.join();
+        }
+    }
+}
@@ -2,16 +2,16 @@ package utils.template;
 
 import model.subject.Test;
 import model.subject.TestResult;
-import model.subject.Question;
 import utils.interpreter.BasicGradingRuleExpression;
 import utils.decorator.OrderedMultipleChoiceDecorator;
 import utils.interpreter.GradingRuleExpression;
+import utils.interpreter.ScoreTable;
 import utils.SerializationUtil;
+import utils.log.Gradebook;
 import java.util.List;
 
 public class StandardExamProcessor extends ExamProcessor {
-
-    private GradingRuleExpression gradingRule;
+    protected final GradingRuleExpression gradingRule;
 
     public StandardExamProcessor() {
         GradingRuleExpression basicRule = new BasicGradingRuleExpression();
@@ -40,31 +40,50 @@ public class StandardExamProcessor extends ExamProcessor {
     @Override
     protected void gradeExam(Test test) {
         List<TestResult> results = test.getTestResults();
+        ScoreTable scoreTable = ScoreTable.compile(gradingRule, test);
         for (TestResult tr : results) {
-            double totalScore = 0.0;
-            List<Question> questions = test.getQuestions();
-            for (Question q : questions) {
-                Integer selectedOption = tr.getAnswers().get(q.getId());
-                double scoreForQuestion = (selectedOption != null) ? gradingRule.evaluate(q, selectedOption) : 0.0;
-                totalScore += scoreForQuestion;
-            }
-            double percentage = (questions.size() > 0) ? (totalScore / questions.size()) * 100.0 : 0.0;
+            double percentage = scoreSubmission(scoreTable, tr);
             tr.setScore(percentage);
-            System.out.println("Graded submission for student " + tr.getStudentId() + ": "
-                    + String.format("%.2f", percentage) + "%");
+            System.out.println(gradedLine(tr, percentage));
         }
     }
 
+    /**
+     * Grades a single submission against the test's questions.
+     *
+     * @param scoreTable The grading rule compiled for the test.
+     * @param tr         The submission.
+     * @return The score as a percentage.
+     */
+    protected double scoreSubmission(ScoreTable scoreTable, TestResult tr) {
+        int questionCount = scoreTable.getQuestionCount();
+        double totalScore = scoreTable.totalScore(tr);
+        return (questionCount > 0) ? (totalScore / questionCount) * 100.0 : 0.0;
+    }
+
+    protected static String gradedLine(TestResult tr, double percentage) {
+        return "Graded submission for student " + tr.getStudentId() + ": " + String.format("%.2f", percentage) + "%";
+    }
+
     @Override
     protected void finalizeExam(Test test) {
         List<TestResult> results = test.getTestResults();
-        double sum = 0.0;
-        for (TestResult tr : results) {
-            sum += tr.getScore();
-        }
+        double sum = sumScores(results);
         double avg = (results.size() > 0) ? sum / results.size() : 0.0;
         System.out.println(
                 "Finalized exam '" + test.getTitle() + "'. Overall average score: " + String.format("%.2f", avg) + "%");
         SerializationUtil.saveDataToDisk(test, "test_" + test.getId() + ".txt");
+        Gradebook.getInstance().regradeAll(results);
+    }
+
+    /**
+     * Sums the scores of the given results, in order.
+     */
+    protected double sumScores(List<TestResult> results) {
+        double sum = 0.0;
+        for (TestResult tr : results) {
+            sum += tr.getScore();
+        }
+        return sum;
     }
 }
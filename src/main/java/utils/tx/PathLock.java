@@ -0,0 +1,126 @@
+package utils.tx;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a data file, held against other threads of this process
+ * and against other processes sharing the data directory: a per-file
+ * {@link ReentrantLock} plus a {@link FileLock} on the file's ".lock"
+ * companion. The lock is reentrant; the file lock is taken by a thread's first
+ * {@link #acquire()} and released by its matching last {@link #release()}.
+ */
+final class PathLock {
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final Map<String, PathLock> locks = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    private PathLock(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @param filePath A data file.
+     * @return The normalized absolute path identifying the file's lock.
+     */
+    static String keyOf(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * @param key A key returned by {@link #keyOf(String)}.
+     * @return The process-wide lock of that file.
+     */
+    static PathLock forKey(String key) {
+        return locks.computeIfAbsent(key, PathLock::new);
+    }
+
+    /**
+     * Locks several files, always in the same (sorted) order so that threads
+     * and processes locking overlapping sets cannot deadlock.
+     *
+     * @param keys Keys returned by {@link #keyOf(String)}.
+     * @return The locks held, in locking order.
+     */
+    static List<PathLock> acquireAll(Collection<String> keys) throws IOException {
+        List<PathLock> held = new ArrayList<>(keys.size());
+        try {
+            for (String key : new TreeSet<>(keys)) {
+                PathLock lock = forKey(key);
+                lock.acquire();
+                held.add(lock);
+            }
+        } catch (IOException e) {
+            releaseAll(held);
+            throw e;
+        }
+        return held;
+    }
+
+    /**
+     * Releases locks returned by {@link #acquireAll}, in reverse order.
+     */
+    static void releaseAll(List<PathLock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).release();
+        }
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    void acquire() throws IOException {
+        lock.lock();
+        if (lock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            channel = FileChannel.open(Paths.get(key + LOCK_SUFFIX), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            fileLock = channel.lock();
+        } catch (IOException e) {
+            close();
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    void release() {
+        if (lock.getHoldCount() == 1) {
+            close();
+        }
+        lock.unlock();
+    }
+
+    private void close() {
+        try {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error releasing " + key + LOCK_SUFFIX + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        fileLock = null;
+        channel = null;
+    }
+}
@@ -0,0 +1,140 @@
+package utils.tx;
+
+import utils.SerializationUtil;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of file updates that are committed together or not at all. Objects
+ * are encoded when they are added, so they may be changed again before the
+ * commit without affecting it; entity updates are applied at commit time, to
+ * the files as stored then. Obtain one from {@link TransactionManager#begin()}.
+ */
+public class Transaction {
+    private final TransactionManager manager;
+    private final List<Operation> operations = new ArrayList<>();
+    private boolean failed;
+    private boolean finished;
+
+    // Changes one entity of a stored list, see VersionedStore.applyTo.
+    interface EntityUpdate {
+        VersionedStore.Outcome apply(ArrayList<?> entities);
+    }
+
+    // One update: a whole-file replacement, a record appended to a log, or a
+    // change to one entity, which becomes a replacement when committed.
+    static class Operation {
+        static final byte REPLACE = 0;
+        static final byte APPEND = 1;
+        static final byte UPDATE = 2;
+
+        final byte kind;
+        final String path;
+        final byte[] bytes;
+        // The saved object, for replacements made in this process.
+        final Serializable value;
+        final EntityUpdate update;
+        // Log position before the append, where recovery starts looking for it.
+        long logGeneration;
+        long logOffset;
+
+        Operation(byte kind, String path, byte[] bytes, Serializable value) {
+            this.kind = kind;
+            this.path = path;
+            this.bytes = bytes;
+            this.value = value;
+            this.update = null;
+        }
+
+        Operation(String path, EntityUpdate update) {
+            this.kind = UPDATE;
+            this.path = path;
+            this.bytes = null;
+            this.value = null;
+            this.update = update;
+        }
+    }
+
+    Transaction(TransactionManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Replaces a data file with a serialized object, as
+     * {@link SerializationUtil#saveDataToDisk} does.
+     *
+     * @param filePath The data file.
+     * @param obj      The object to save.
+     * @return This transaction.
+     */
+    public Transaction write(String filePath, Serializable obj) {
+        checkOpen();
+        try {
+            operations.add(new Operation(Operation.REPLACE, filePath, SerializationUtil.toBytes(obj), obj));
+        } catch (IOException e) {
+            System.err.println("Error encoding data for " + filePath + ": " + e.getMessage());
+            e.printStackTrace();
+            failed = true;
+        }
+        return this;
+    }
+
+    /**
+     * Changes one entity of a data file holding a list of {@link Versioned}
+     * entities. The change is applied when the transaction commits, to the
+     * entity as stored at that moment, while the file is locked, and the
+     * entity's version is incremented; the rest of the file is written back as
+     * stored. The commit fails if there is no such entity.
+     *
+     * @param <T>      The entity type.
+     * @param filePath The data file.
+     * @param id       The ID of the entity to change.
+     * @param change   The change; if it makes none, the file is not written.
+     * @return This transaction.
+     */
+    public <T extends Versioned> Transaction update(String filePath, String id, VersionedStore.Change<T> change) {
+        checkOpen();
+        operations.add(new Operation(filePath, entities -> VersionedStore.applyTo(entities, id, change)));
+        return this;
+    }
+
+    /**
+     * Appends a record to an {@link utils.log.AppendLog} file.
+     *
+     * @param logPath The log file.
+     * @param record  The record bytes.
+     * @return This transaction.
+     */
+    public Transaction append(String logPath, byte[] record) {
+        checkOpen();
+        operations.add(new Operation(Operation.APPEND, logPath, record, null));
+        return this;
+    }
+
+    /**
+     * Commits the updates. Once this returns true the transaction is durable:
+     * if applying it is interrupted or keeps failing, it is completed before
+     * any later write to the same files, or when the application next starts.
+     *
+     * @return Whether the transaction was committed; if not, none of its
+     *         updates were made.
+     */
+    public boolean commit() {
+        checkOpen();
+        finished = true;
+        if (failed) {
+            System.err.println("Transaction aborted: an update could not be encoded.");
+            return false;
+        }
+        return manager.commit(operations);
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Transaction already committed");
+        }
+    }
+}
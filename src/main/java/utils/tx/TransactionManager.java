@@ -0,0 +1,499 @@
+package utils.tx;
+
+import utils.SerializationUtil;
+import utils.log.AppendLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Commits {@link Transaction}s that update several data files at once, e.g. a
+ * group and the users enrolled in it. A transaction first writes all of its
+ * updates to a redo log and only then applies them to the data files; a done
+ * record marks it complete.
+ *
+ * Transactions lock only the files they touch, in this process and across
+ * processes (see {@link PathLock}), always in the same (sorted) order, so
+ * transactions on unrelated files commit in parallel without deadlocking
+ * each other. A transaction that was committed but not applied, because the
+ * application crashed or a write kept failing, is completed before any later
+ * transaction on the same files writes anything, and before the redo log is
+ * truncated; an unfinished transaction is therefore never replayed over newer
+ * data. The manager also completes unfinished transactions when it is first
+ * used.
+ */
+public class TransactionManager {
+    static final String REDO_LOG_PATH = "transactions.log";
+    // Truncate the redo log once it grows beyond this many bytes.
+    private static final long CHECKPOINT_BYTES = 256 * 1024;
+    // Attempts at applying a transaction before leaving it to a later one.
+    private static final int APPLY_ATTEMPTS = 3;
+    // Commit records without (1) and with (3) the generation of appended logs.
+    private static final byte COMMIT_V1 = 1;
+    private static final byte DONE = 2;
+    private static final byte COMMIT = 3;
+    // Generation of an append whose commit record predates generations.
+    private static final long UNKNOWN_GENERATION = -1;
+
+    private static TransactionManager instance;
+
+    private final AppendLog redoLog;
+    // IDs start at a random point so that processes sharing the redo log do
+    // not hand out the same ones.
+    private final AtomicLong lastId = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private final AtomicInteger active = new AtomicInteger();
+    // Committed transactions without a done record, in log order, as of the
+    // last read of the redo log; guarded by this.
+    private final Map<Long, List<Transaction.Operation>> pending = new LinkedHashMap<>();
+    private long redoGeneration;
+    private long redoOffset;
+
+    private TransactionManager(String redoLogPath) {
+        this.redoLog = AppendLog.forPath(redoLogPath);
+    }
+
+    /**
+     * Returns the process-wide manager, completing any transactions left
+     * unfinished in the redo log on first use.
+     *
+     * @return The transaction manager.
+     */
+    public static synchronized TransactionManager getInstance() {
+        if (instance == null) {
+            TransactionManager manager = new TransactionManager(REDO_LOG_PATH);
+            manager.recover();
+            instance = manager;
+        }
+        return instance;
+    }
+
+    /**
+     * @return A new, empty transaction.
+     */
+    public Transaction begin() {
+        return new Transaction(this);
+    }
+
+    /**
+     * Runs an action while holding a data file's lock, after completing any
+     * unfinished transaction on the file, e.g. to rewrite or truncate a file
+     * that transactions also write.
+     *
+     * @param <T>      The action's result type.
+     * @param filePath The data file.
+     * @param action   The action.
+     * @return The action's result, or null if the file could not be locked or
+     *         an unfinished transaction on it could not be completed, in which
+     *         case the action was not run.
+     */
+    public <T> T runExclusive(String filePath, Supplier<T> action) {
+        List<PathLock> held;
+        try {
+            held = lockClosure(Collections.singleton(PathLock.keyOf(filePath)));
+        } catch (IOException e) {
+            System.err.println("Error locking " + filePath + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        try {
+            if (!completePending(held)) {
+                System.err.println("Not writing " + filePath + ": an earlier transaction on it could not be"
+                        + " completed.");
+                return null;
+            }
+            return action.get();
+        } finally {
+            PathLock.releaseAll(held);
+        }
+    }
+
+    boolean commit(List<Transaction.Operation> operations) {
+        Set<String> keys = new TreeSet<>();
+        for (Transaction.Operation op : operations) {
+            keys.add(PathLock.keyOf(op.path));
+        }
+        List<PathLock> held;
+        try {
+            held = lockClosure(keys);
+        } catch (IOException e) {
+            System.err.println("Transaction aborted: could not lock its files: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        active.incrementAndGet();
+        try {
+            // Nothing older may be applied after this transaction's updates.
+            if (!completePending(held)) {
+                System.err.println("Transaction aborted: an earlier transaction on the same files could not be"
+                        + " completed.");
+                return false;
+            }
+            operations = resolveUpdates(operations);
+            if (operations == null) {
+                return false;
+            }
+            if (operations.isEmpty()) {
+                // Only updates that changed nothing.
+                return true;
+            }
+            long id = lastId.incrementAndGet();
+            try {
+                for (Transaction.Operation op : operations) {
+                    if (op.kind == Transaction.Operation.APPEND) {
+                        AppendLog.Position position = AppendLog.forPath(op.path).position();
+                        op.logGeneration = position.getGeneration();
+                        op.logOffset = position.getOffset();
+                    }
+                }
+                redoLog.append(encodeCommit(id, operations));
+            } catch (IOException e) {
+                System.err.println("Transaction aborted: could not write " + REDO_LOG_PATH + ": " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+            synchronized (this) {
+                pending.put(id, operations);
+            }
+            // Committed from here on: if it cannot be applied now, it is
+            // completed before anything else writes these files.
+            if (!complete(id, operations)) {
+                System.err.println("Transaction " + id + " committed but not fully applied; it will be completed"
+                        + " before the next write to its files.");
+            }
+            return true;
+        } finally {
+            PathLock.releaseAll(held);
+            if (active.decrementAndGet() == 0) {
+                checkpoint();
+            }
+        }
+    }
+
+    // Applies the transaction's entity updates to their files as stored now,
+    // which are locked, turning them into replacements of those files.
+    // Returns null if the transaction has to be aborted.
+    private static List<Transaction.Operation> resolveUpdates(List<Transaction.Operation> operations) {
+        List<Transaction.Operation> resolved = new ArrayList<>();
+        Map<String, ArrayList<?>> read = new HashMap<>();
+        Set<String> changed = new LinkedHashSet<>();
+        for (Transaction.Operation op : operations) {
+            if (op.kind != Transaction.Operation.UPDATE) {
+                resolved.add(op);
+                continue;
+            }
+            ArrayList<?> entities = read.get(op.path);
+            if (entities == null) {
+                entities = VersionedStore.readFresh(new File(op.path));
+                if (entities == null) {
+                    System.err.println("Transaction aborted: could not read " + op.path);
+                    return null;
+                }
+                read.put(op.path, entities);
+            }
+            VersionedStore.Outcome outcome = op.update.apply(entities);
+            if (outcome == VersionedStore.Outcome.NOT_FOUND) {
+                System.err.println("Transaction aborted: an updated entity no longer exists in " + op.path);
+                return null;
+            }
+            if (outcome == VersionedStore.Outcome.UPDATED) {
+                changed.add(op.path);
+            }
+        }
+        for (String path : changed) {
+            ArrayList<?> entities = read.get(path);
+            try {
+                resolved.add(new Transaction.Operation(Transaction.Operation.REPLACE, path,
+                        SerializationUtil.toBytes(entities), entities));
+            } catch (IOException e) {
+                System.err.println("Transaction aborted: could not encode " + path + ": " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return resolved;
+    }
+
+    // Locks the given files plus every file of an unfinished transaction on
+    // any of them, so that such transactions can be completed first.
+    private List<PathLock> lockClosure(Set<String> keys) throws IOException {
+        Set<String> wanted = new TreeSet<>(keys);
+        while (true) {
+            List<PathLock> held = PathLock.acquireAll(wanted);
+            Set<String> closure = new TreeSet<>(wanted);
+            synchronized (this) {
+                readRedoLog();
+                boolean grown = true;
+                while (grown) {
+                    grown = false;
+                    for (List<Transaction.Operation> operations : pending.values()) {
+                        if (touchesAny(operations, closure)) {
+                            for (Transaction.Operation op : operations) {
+                                grown |= closure.add(PathLock.keyOf(op.path));
+                            }
+                        }
+                    }
+                }
+            }
+            if (closure.equals(wanted)) {
+                return held;
+            }
+            // Locks are only ever taken in sorted order: start over.
+            PathLock.releaseAll(held);
+            wanted = closure;
+        }
+    }
+
+    // Completes the unfinished transactions on the locked files, oldest first.
+    private boolean completePending(List<PathLock> held) {
+        Set<String> keys = new TreeSet<>();
+        for (PathLock lock : held) {
+            keys.add(lock.getKey());
+        }
+        List<Map.Entry<Long, List<Transaction.Operation>>> unfinished = new ArrayList<>();
+        synchronized (this) {
+            readRedoLog();
+            for (Map.Entry<Long, List<Transaction.Operation>> entry : pending.entrySet()) {
+                if (touchesAny(entry.getValue(), keys)) {
+                    unfinished.add(entry);
+                }
+            }
+        }
+        for (Map.Entry<Long, List<Transaction.Operation>> entry : unfinished) {
+            if (!complete(entry.getKey(), entry.getValue())) {
+                return false;
+            }
+            System.out.println("Completed unfinished transaction " + entry.getKey() + " from " + REDO_LOG_PATH);
+        }
+        return true;
+    }
+
+    private static boolean touchesAny(List<Transaction.Operation> operations, Set<String> keys) {
+        for (Transaction.Operation op : operations) {
+            if (keys.contains(PathLock.keyOf(op.path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Applies a committed transaction, whose files are locked, and marks it
+    // done.
+    private boolean complete(long id, List<Transaction.Operation> operations) {
+        boolean applied = false;
+        for (int attempt = 0; attempt < APPLY_ATTEMPTS && !applied; attempt++) {
+            applied = apply(operations);
+        }
+        if (!applied) {
+            return false;
+        }
+        try {
+            redoLog.append(encodeDone(id));
+        } catch (IOException e) {
+            // Applied again next time, which is harmless.
+            System.err.println("Error writing to " + REDO_LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+            return true;
+        }
+        synchronized (this) {
+            pending.remove(id);
+        }
+        return true;
+    }
+
+    private static boolean apply(List<Transaction.Operation> operations) {
+        // Replacements go out in one group commit alongside the appends.
+        List<CompletableFuture<Boolean>> saves = new ArrayList<>();
+        boolean applied = true;
+        for (Transaction.Operation op : operations) {
+            if (op.kind == Transaction.Operation.REPLACE) {
+                saves.add(SerializationUtil.saveEncodedAsync(op.value, op.bytes, op.path));
+            } else {
+                try {
+                    AppendLog log = AppendLog.forPath(op.path);
+                    // Appends cannot simply be repeated.
+                    if (!containsRecord(log, op)) {
+                        log.append(op.bytes);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error appending to " + op.path + ": " + e.getMessage());
+                    e.printStackTrace();
+                    applied = false;
+                }
+            }
+        }
+        for (CompletableFuture<Boolean> save : saves) {
+            applied &= save.join();
+        }
+        return applied;
+    }
+
+    // Looks for an append's record after the position the log had at commit.
+    private static boolean containsRecord(AppendLog log, Transaction.Operation op) throws IOException {
+        long generation = op.logGeneration;
+        if (generation == UNKNOWN_GENERATION) {
+            generation = log.position().getGeneration();
+        }
+        AppendLog.Chunk chunk = log.readFrom(generation, op.logOffset);
+        if (chunk.isReset() && op.logGeneration != UNKNOWN_GENERATION) {
+            // The log was truncated since the commit. Logs are only truncated
+            // through runExclusive, after completing the transactions that
+            // append to them, so the record was applied (and compacted).
+            return true;
+        }
+        for (byte[] record : chunk.getRecords()) {
+            if (Arrays.equals(record, op.bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Brings the pending transactions up to date with the redo log, which
+    // other processes append to as well.
+    private synchronized void readRedoLog() {
+        try {
+            AppendLog.Chunk chunk = redoLog.readFrom(redoGeneration, redoOffset);
+            if (chunk.isReset()) {
+                // Only truncated when nothing was pending.
+                pending.clear();
+            }
+            for (byte[] record : chunk.getRecords()) {
+                decode(record, pending);
+            }
+            redoGeneration = chunk.getGeneration();
+            redoOffset = chunk.getEndOffset();
+        } catch (IOException e) {
+            System.err.println("Error reading " + REDO_LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void recover() {
+        List<Long> unfinished;
+        synchronized (this) {
+            readRedoLog();
+            unfinished = new ArrayList<>(pending.keySet());
+        }
+        for (long id : unfinished) {
+            List<Transaction.Operation> operations;
+            synchronized (this) {
+                operations = pending.get(id);
+            }
+            if (operations == null) {
+                continue;
+            }
+            Set<String> keys = new TreeSet<>();
+            for (Transaction.Operation op : operations) {
+                keys.add(PathLock.keyOf(op.path));
+            }
+            try {
+                List<PathLock> held = lockClosure(keys);
+                try {
+                    // Also skips transactions another process completed while
+                    // we waited for the locks.
+                    completePending(held);
+                } finally {
+                    PathLock.releaseAll(held);
+                }
+            } catch (IOException e) {
+                System.err.println("Error recovering transaction " + id + " from " + REDO_LOG_PATH + ": "
+                        + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        checkpoint();
+    }
+
+    private void checkpoint() {
+        if (redoLog.size() < CHECKPOINT_BYTES) {
+            return;
+        }
+        try {
+            // Only truncate when every logged transaction, including those of
+            // other processes, has been applied. Appends wait meanwhile.
+            redoLog.drain(chunk -> {
+                Map<Long, List<Transaction.Operation>> unfinished = new LinkedHashMap<>();
+                for (byte[] record : chunk.getRecords()) {
+                    decode(record, unfinished);
+                }
+                return unfinished.isEmpty();
+            });
+        } catch (IOException e) {
+            System.err.println("Error truncating " + REDO_LOG_PATH + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static byte[] encodeCommit(long id, List<Transaction.Operation> operations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(COMMIT);
+        out.writeLong(id);
+        out.writeInt(operations.size());
+        for (Transaction.Operation op : operations) {
+            out.writeByte(op.kind);
+            out.writeUTF(op.path);
+            out.writeLong(op.logGeneration);
+            out.writeLong(op.logOffset);
+            out.writeInt(op.bytes.length);
+            out.write(op.bytes);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDone(long id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DONE);
+        out.writeLong(id);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // Adds a commit record to the pending transactions, or removes the
+    // transaction a done record completes.
+    private static void decode(byte[] record, Map<Long, List<Transaction.Operation>> pending) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        long id = in.readLong();
+        if (type == DONE) {
+            pending.remove(id);
+            return;
+        }
+        int count = in.readInt();
+        List<Transaction.Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            String path = in.readUTF();
+            long logGeneration = (type == COMMIT_V1) ? UNKNOWN_GENERATION : in.readLong();
+            long logOffset = in.readLong();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            Transaction.Operation op = new Transaction.Operation(kind, path, bytes, null);
+            op.logGeneration = logGeneration;
+            op.logOffset = logOffset;
+            operations.add(op);
+        }
+        pending.put(id, operations);
+    }
+}
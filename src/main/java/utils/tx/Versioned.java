@@ -0,0 +1,14 @@
+package utils.tx;
+
+/**
+ * An entity whose stored copy carries a version number, incremented by every
+ * update made through {@link VersionedStore}. A writer that read version n may
+ * only store its change while the stored copy is still at version n.
+ */
+public interface Versioned {
+    String getId();
+
+    long getVersion();
+
+    void setVersion(long version);
+}
@@ -0,0 +1,238 @@
+package utils.tx;
+
+import utils.EntityCache;
+import utils.SerializationUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * Optimistic updates of single entities in a data file holding a list of
+ * {@link Versioned} entities. The change is applied to a copy of the entity
+ * read without any lock, and stored only if the stored copy is still at the
+ * version that was read (compare-and-set). If someone stored a newer version
+ * in the meantime, the change is applied again to that newer copy, so
+ * concurrent changes from other windows or processes are merged instead of
+ * overwritten. Other entities in the file are written back exactly as they are
+ * stored at that moment.
+ *
+ * Only the compare-and-set step is locked, per file and across processes (the
+ * same lock {@link TransactionManager} takes), so clients sharing a data
+ * directory need no global lock. Whole-list saves made
+ * with {@link SerializationUtil#saveDataToDisk} bypass the check. Changes that
+ * have to be stored together with others go through
+ * {@link Transaction#update} instead, which applies them under the lock.
+ */
+public class VersionedStore {
+    /**
+     * A change to one entity.
+     */
+    public interface Change<T> {
+        /**
+         * Applies the change to a stored copy of the entity. Called a second
+         * time, with the newer copy, if the first one was outdated.
+         *
+         * @param entity The entity to change.
+         * @return False if the entity needs no change, e.g. the same change was
+         *         already made by someone else.
+         */
+        boolean apply(T entity);
+    }
+
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND, FAILED
+    }
+
+    /**
+     * Result of {@link #update}, {@link #insert} or {@link #delete}.
+     */
+    public static class Result<T> {
+        private final Outcome outcome;
+        private final ArrayList<T> entities;
+        private final boolean merged;
+
+        Result(Outcome outcome, ArrayList<T> entities, boolean merged) {
+            this.outcome = outcome;
+            this.entities = entities;
+            this.merged = merged;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return The file's entities as stored after the update (or as read,
+         *         if nothing was written); null if the file could not be read.
+         */
+        public ArrayList<T> getEntities() {
+            return entities;
+        }
+
+        /**
+         * @return Whether the entity had been changed concurrently, so the
+         *         change was applied again to the newer version.
+         */
+        public boolean isMerged() {
+            return merged;
+        }
+    }
+
+    private VersionedStore() {
+    }
+
+    /**
+     * Changes one entity of a data file.
+     *
+     * @param <T>      The entity type.
+     * @param filePath The data file, holding a list of entities.
+     * @param id       The ID of the entity to change.
+     * @param change   The change.
+     * @return The outcome and the stored entities.
+     */
+    public static <T extends Versioned> Result<T> update(String filePath, String id, Change<T> change) {
+        File file = new File(filePath);
+        EntityCache.Stamp readStamp = EntityCache.stampOf(file);
+        ArrayList<T> entities = readFresh(file);
+        if (entities == null) {
+            return new Result<>(Outcome.FAILED, null, false);
+        }
+        int index = indexOf(entities, id);
+        if (index < 0) {
+            return new Result<>(Outcome.NOT_FOUND, entities, false);
+        }
+        T entity = entities.get(index);
+        long expected = entity.getVersion();
+        if (!change.apply(entity)) {
+            return new Result<>(Outcome.UNCHANGED, entities, false);
+        }
+        entity.setVersion(expected + 1);
+
+        // Under the file's transaction lock, so that the check also covers
+        // transactions on the file and unfinished ones are completed first.
+        T changed = entity;
+        ArrayList<T> read = entities;
+        Result<T> result = TransactionManager.getInstance().runExclusive(filePath, () -> {
+            ArrayList<T> stored = read;
+            boolean merged = false;
+            if (!Objects.equals(EntityCache.stampOf(file), readStamp)) {
+                // Written since we read it: store our entity into the current
+                // contents, keeping everyone else's changes.
+                stored = readFresh(file);
+                if (stored == null) {
+                    return new Result<>(Outcome.FAILED, null, false);
+                }
+                int currentIndex = indexOf(stored, id);
+                if (currentIndex < 0) {
+                    return new Result<>(Outcome.NOT_FOUND, stored, false);
+                }
+                T current = stored.get(currentIndex);
+                if (current.getVersion() == expected) {
+                    stored.set(currentIndex, changed);
+                } else {
+                    // The entity itself changed: apply ours on top.
+                    merged = true;
+                    long currentVersion = current.getVersion();
+                    if (!change.apply(current)) {
+                        return new Result<>(Outcome.UNCHANGED, stored, true);
+                    }
+                    current.setVersion(currentVersion + 1);
+                }
+            }
+            boolean saved = SerializationUtil.saveDataToDiskAsync(stored, filePath).join();
+            return new Result<>(saved ? Outcome.UPDATED : Outcome.FAILED, stored, merged);
+        });
+        return (result != null) ? result : new Result<>(Outcome.FAILED, null, false);
+    }
+
+    /**
+     * Adds an entity to a data file, holding the file's lock, so that entities
+     * stored by others since the file was last read are kept. A missing file
+     * is created.
+     *
+     * @param <T>      The entity type.
+     * @param filePath The data file, holding a list of entities.
+     * @param entity   The new entity.
+     * @return The outcome (UPDATED if added) and the stored entities.
+     */
+    public static <T> Result<T> insert(String filePath, T entity) {
+        File file = new File(filePath);
+        Result<T> result = TransactionManager.getInstance().runExclusive(filePath, () -> {
+            ArrayList<T> stored = file.exists() ? readFresh(file) : new ArrayList<>();
+            if (stored == null) {
+                return new Result<>(Outcome.FAILED, null, false);
+            }
+            stored.add(entity);
+            boolean saved = SerializationUtil.saveDataToDiskAsync(stored, filePath).join();
+            return new Result<>(saved ? Outcome.UPDATED : Outcome.FAILED, stored, false);
+        });
+        return (result != null) ? result : new Result<>(Outcome.FAILED, null, false);
+    }
+
+    /**
+     * Deletes one entity of a data file, holding the file's lock.
+     *
+     * @param <T>      The entity type.
+     * @param filePath The data file, holding a list of entities.
+     * @param id       The ID of the entity to delete.
+     * @return The outcome (UPDATED if deleted) and the stored entities.
+     */
+    public static <T extends Versioned> Result<T> delete(String filePath, String id) {
+        File file = new File(filePath);
+        Result<T> result = TransactionManager.getInstance().runExclusive(filePath, () -> {
+            ArrayList<T> stored = readFresh(file);
+            if (stored == null) {
+                return new Result<>(Outcome.FAILED, null, false);
+            }
+            int index = indexOf(stored, id);
+            if (index < 0) {
+                return new Result<>(Outcome.NOT_FOUND, stored, false);
+            }
+            stored.remove(index);
+            boolean saved = SerializationUtil.saveDataToDiskAsync(stored, filePath).join();
+            return new Result<>(saved ? Outcome.UPDATED : Outcome.FAILED, stored, false);
+        });
+        return (result != null) ? result : new Result<>(Outcome.FAILED, null, false);
+    }
+
+    // Applies a change to one entity of a stored list and increments its
+    // version; for transactions, which hold the file's lock.
+    @SuppressWarnings("unchecked")
+    static <T extends Versioned> Outcome applyTo(ArrayList<?> entities, String id, Change<T> change) {
+        int index = indexOf((ArrayList<? extends Versioned>) entities, id);
+        if (index < 0) {
+            return Outcome.NOT_FOUND;
+        }
+        T entity = (T) entities.get(index);
+        long version = entity.getVersion();
+        if (!change.apply(entity)) {
+            return Outcome.UNCHANGED;
+        }
+        entity.setVersion(version + 1);
+        return Outcome.UPDATED;
+    }
+
+    // Decodes the file without going through the entity cache, so the
+    // entities can be changed without affecting other readers.
+    static <T> ArrayList<T> readFresh(File file) {
+        try {
+            return SerializationUtil.fromBytes(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            System.err.println("Error reading from " + file.getPath() + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static int indexOf(ArrayList<? extends Versioned> entities, String id) {
+        for (int i = 0; i < entities.size(); i++) {
+            if (entities.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -4,7 +4,9 @@ import model.subject.Test;
 import model.subject.TestResult;
 
 /**
- * Visitor that extracts grade information for a specific student.
+ * Visitor that extracts grade information for a specific student. Visiting
+ * walks every result of every test; {@link utils.log.Gradebook} keeps the
+ * same averages up to date as submissions come in.
  */
 public class StudentGradeVisitor implements ExamVisitor {
     private String studentId;